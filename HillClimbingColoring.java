@@ -1,14 +1,74 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.random.RandomGenerator;
 
 public class HillClimbingColoring {
 
-    // All available colors: b = blue, r = red, o = orange, j = jungle
-    static final String[] ALL_COLORS = {"b","r","o","j"};
+    /**
+     * Available colors with the cost of using each one. The default palette is
+     * b = blue (1), r = red (2), o = orange (3), j = jungle (5); main accepts any
+     * other palette written as "name:weight,name:weight,...".
+     */
+    static class Palette {
+        final String[] names;
+        final int[] weights;
+
+        Palette(String[] names, int[] weights) {
+            this.names = names;
+            this.weights = weights;
+        }
+
+        static Palette parse(String spec) {
+            String[] entries = spec.split(",");
+            String[] names = new String[entries.length];
+            int[] weights = new int[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                int colon = entries[i].indexOf(':');
+                if (colon <= 0) {
+                    throw new IllegalArgumentException("Palette entry must look like name:weight, got " + entries[i]);
+                }
+                names[i] = entries[i].substring(0, colon).trim();
+                try {
+                    weights[i] = Integer.parseInt(entries[i].substring(colon + 1).trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Palette weight must be an integer, got " + entries[i]);
+                }
+                if (Arrays.asList(names).subList(0, i).contains(names[i])) {
+                    throw new IllegalArgumentException("Duplicate color " + names[i]);
+                }
+            }
+            return new Palette(names, weights);
+        }
+
+        // cost of a color name, 0 for names outside the palette
+        int weightOf(String name) {
+            int i = Arrays.asList(names).indexOf(name);
+            return i < 0 ? 0 : weights[i];
+        }
+    }
+
+    static Palette PALETTE = new Palette(new String[]{"b","r","o","j"}, new int[]{1,2,3,5});
     static final int REGION_COUNT = 13;
 
     // Will be initialized based on the value of k
     static String[] COLORS;
+    static int[] WEIGHTS;
 
     // Adjacency matrix: 1 indicates that two regions are adjacent
     static final int[][] ADJ_MATRIX = {
@@ -27,6 +87,12 @@ public class HillClimbingColoring {
             {1,0,0,0,0,0,0,0,0,0,0,1,1},
     };
 
+    // Graph the solver currently works on, the Canada map unless main loads an edge list
+    static Graph GRAPH = Graph.fromMatrix(ADJ_MATRIX);
+
+    // Counters and phase timers of the searches; main swaps in live metrics with --metrics
+    static SearchMetrics METRICS = SearchMetrics.DISABLED;
+
     // Check if a state is the goal
     static boolean isGoalState(String[] state) {
         return computeHeuristic(state) == 0;
@@ -35,9 +101,24 @@ public class HillClimbingColoring {
     // Heuristic function: count the number of adjacent regions with the same color
     static int computeHeuristic(String[] state) {
         int h = 0;
-        for (int i = 0; i < REGION_COUNT; i++) {
-            for (int j = i+1; j < REGION_COUNT; j++) {
-                if (ADJ_MATRIX[i][j] == 1 && state[i].equals(state[j])){
+        for (int i = 0; i < GRAPH.vertexCount(); i++) {
+            for (int e = GRAPH.offsets[i]; e < GRAPH.offsets[i + 1]; e++) {
+                int j = GRAPH.targets[e];
+                if (j > i && state[i].equals(state[j])) {
+                    h++;
+                }
+            }
+        }
+        return h;
+    }
+
+    // Heuristic on color codes
+    static int computeHeuristic(Graph graph, int[] state) {
+        int h = 0;
+        for (int i = 0; i < graph.vertexCount(); i++) {
+            for (int e = graph.offsets[i]; e < graph.offsets[i + 1]; e++) {
+                int j = graph.targets[e];
+                if (j > i && state[i] == state[j]) {
                     h++;
                 }
             }
@@ -49,64 +130,737 @@ public class HillClimbingColoring {
     static int computeCost(String[] state) {
         int cost = 0;
         for (String c : state) {
-            switch (c) {
-                case "b": cost += 1; break;
-                case "r": cost += 2; break;
-                case "o": cost += 3; break;
-                case "j": cost += 5; break;
-            }
+            cost += PALETTE.weightOf(c);
         }
         return cost;
     }
 
-    // Hill-climbing algorithm to reduce conflicts by changing one color at a time
-    static String[]hillClimb(String[] initialState) {
-        String[] current = Arrays.copyOf(initialState,REGION_COUNT);
-        int currentH = computeHeuristic(current);
+    // Cost on color codes, weights[c] being the cost of color c
+    static long computeCost(int[] state, int[] weights) {
+        long cost = 0;
+        for (int c : state) {
+            cost += weights[c];
+        }
+        return cost;
+    }
 
-        while (true) {
-            String[] bestNeighbor = null;
-            int bestH = currentH;
+    /**
+     * Undirected graph in compressed sparse row form: the neighbors of v are
+     * targets[offsets[v]] .. targets[offsets[v + 1] - 1]. Every edge is stored in
+     * both directions, so memory is two ints per edge plus one int per vertex.
+     */
+    static class Graph {
+        final int[] offsets;
+        final int[] targets;
 
-            // Try changing each region to a different color
-            for (int i = 0; i < REGION_COUNT; i++) {
-                for (String color : COLORS) {
-                    if (!color.equals(current[i])){
-                        String[] neighbor = Arrays.copyOf(current,REGION_COUNT);
-                        neighbor[i] = color;
-                        int h = computeHeuristic(neighbor);
-                        if (h < bestH) {
-                            bestH = h;
-                            bestNeighbor = neighbor;
+        Graph(int[] offsets, int[] targets) {
+            this.offsets = offsets;
+            this.targets = targets;
+        }
+
+        int vertexCount() {
+            return offsets.length - 1;
+        }
+
+        int degree(int v) {
+            return offsets[v + 1] - offsets[v];
+        }
+
+        // build from an adjacency matrix, ignoring the diagonal
+        static Graph fromMatrix(int[][] adj) {
+            int[] offsets = new int[adj.length + 1];
+            for (int i = 0; i < adj.length; i++) {
+                int degree = 0;
+                for (int j = 0; j < adj.length; j++) {
+                    if (i != j && adj[i][j] == 1) degree++;
+                }
+                offsets[i + 1] = offsets[i] + degree;
+            }
+            int[] targets = new int[offsets[adj.length]];
+            for (int i = 0; i < adj.length; i++) {
+                int next = offsets[i];
+                for (int j = 0; j < adj.length; j++) {
+                    if (i != j && adj[i][j] == 1) targets[next++] = j;
+                }
+            }
+            return new Graph(offsets, targets);
+        }
+
+        // build from an edge list given as parallel endpoint arrays; self loops are dropped
+        static Graph fromEdges(int vertexCount, int[] from, int[] to, int edgeCount) {
+            int[] offsets = new int[vertexCount + 1];
+            for (int e = 0; e < edgeCount; e++) {
+                if (from[e] == to[e]) continue;
+                offsets[from[e] + 1]++;
+                offsets[to[e] + 1]++;
+            }
+            for (int v = 0; v < vertexCount; v++) offsets[v + 1] += offsets[v];
+            int[] next = Arrays.copyOf(offsets, vertexCount);
+            int[] targets = new int[offsets[vertexCount]];
+            for (int e = 0; e < edgeCount; e++) {
+                if (from[e] == to[e]) continue;
+                targets[next[from[e]]++] = to[e];
+                targets[next[to[e]]++] = from[e];
+            }
+            return new Graph(offsets, targets);
+        }
+
+        /**
+         * Stream an edge list file: exactly one "u v" pair of zero-based vertex ids per
+         * line, lines starting with '#' or '%' are comments. The file is read through a
+         * fixed-size buffer, so only the edge arrays grow with the input.
+         */
+        static Graph load(Path path) throws IOException {
+            int[] from = new int[1024];
+            int[] to = new int[1024];
+            int edgeCount = 0;
+            int maxVertex = -1;
+            int[] pair = new int[2];
+            int fields = 0;
+            int line = 1;
+            long value = 0;
+            boolean inNumber = false;
+            boolean inComment = false;
+            boolean lineStart = true;
+
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+                boolean eof = false;
+                while (!eof) {
+                    buffer.clear();
+                    eof = channel.read(buffer) < 0;
+                    buffer.flip();
+                    // at end of file, feed one final newline to flush the last line
+                    int limit = eof ? 1 : buffer.limit();
+                    for (int i = 0; i < limit; i++) {
+                        byte b = eof ? (byte) '\n' : buffer.get(i);
+                        if (b == '\n') {
+                            if (inNumber) {
+                                if (fields < 2) pair[fields] = (int) value;
+                                fields++;
+                            }
+                            if (!inComment && fields == 2) {
+                                if (edgeCount == from.length) {
+                                    from = Arrays.copyOf(from, edgeCount * 2);
+                                    to = Arrays.copyOf(to, edgeCount * 2);
+                                }
+                                from[edgeCount] = pair[0];
+                                to[edgeCount] = pair[1];
+                                edgeCount++;
+                                maxVertex = Math.max(maxVertex, Math.max(pair[0], pair[1]));
+                            } else if (!inComment && fields != 0) {
+                                throw new IOException("Expected 2 vertex ids but got " + fields + " on line " + line + " of " + path);
+                            }
+                            line++;
+                            fields = 0;
+                            value = 0;
+                            inNumber = false;
+                            inComment = false;
+                            lineStart = true;
+                        } else if (inComment) {
+                            // skip the rest of the comment line
+                        } else if (lineStart && (b == '#' || b == '%')) {
+                            inComment = true;
+                        } else if (b >= '0' && b <= '9') {
+                            value = value * 10 + (b - '0');
+                            // fromEdges sizes its offsets as max id + 2, which must still fit in an int
+                            if (value >= Integer.MAX_VALUE - 1) throw new IOException("Vertex id too large on line " + line + " of " + path);
+                            inNumber = true;
+                            lineStart = false;
+                        } else if (b == ' ' || b == '\t' || b == ',' || b == '\r') {
+                            if (inNumber) {
+                                if (fields < 2) pair[fields] = (int) value;
+                                fields++;
+                            }
+                            value = 0;
+                            inNumber = false;
+                        } else {
+                            throw new IOException("Unexpected character '" + (char) b + "' on line " + line + " of " + path);
                         }
                     }
                 }
             }
+            return fromEdges(maxVertex + 1, from, to, edgeCount);
+        }
+    }
 
-            // Stop if no improvement
-            if (bestNeighbor == null || bestH >= currentH) break;
+    // Map each region's color to its index in COLORS
+    static int[] encode(String[] state) {
+        int[] codes = new int[state.length];
+        for (int i = 0; i < state.length; i++) {
+            codes[i] = Arrays.asList(COLORS).indexOf(state[i]);
+        }
+        return codes;
+    }
 
-            current = bestNeighbor;
-            currentH = bestH;
+    // Map color indices back to color names
+    static String[] decode(int[] codes) {
+        String[] state = new String[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            state[i] = COLORS[codes[i]];
+        }
+        return state;
+    }
+
+    /**
+     * Incremental conflict bookkeeping for a coloring stored as color codes.
+     * counts[v * k + c] is the number of neighbors of v that currently have color c,
+     * so recoloring v from a to b changes h by counts[v*k+b] - counts[v*k+a]
+     * and applying the move only touches the neighbors of v.
+     *
+     * The best move of every vertex is cached, and vertices whose best move lowers h
+     * are kept in an indexed min-heap ordered by (delta, vertex), so the steepest
+     * move is found in O(1) and a move costs O(degree * (k + log n)). Searches that
+     * pick their own moves can turn this cache off.
+     */
+    static class ConflictTable {
+        final Graph graph;
+        final int k;
+        final int[] colors;
+        final int[] counts;
+        final int[] bestDelta;
+        final int[] bestColor;
+        final int[] heap;
+        final int[] heapPos;
+        final boolean trackBestMoves;
+        int heapSize;
+        int h;
+
+        ConflictTable(Graph graph, int k, int[] colors) {
+            this(graph, k, colors, true);
+        }
+
+        ConflictTable(Graph graph, int k, int[] colors, boolean trackBestMoves) {
+            this.graph = graph;
+            this.trackBestMoves = trackBestMoves;
+            this.k = k;
+            this.colors = colors;
+            int n = colors.length;
+            int cached = trackBestMoves ? n : 0;
+            this.counts = new int[n * k];
+            this.bestDelta = new int[cached];
+            this.bestColor = new int[cached];
+            this.heap = new int[cached];
+            this.heapPos = new int[cached];
+            Arrays.fill(heapPos, -1);
+            for (int v = 0; v < n; v++) {
+                for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                    int u = graph.targets[e];
+                    counts[v * k + colors[u]]++;
+                    if (u > v && colors[u] == colors[v]) h++;
+                }
+            }
+            for (int v = 0; v < cached; v++) refresh(v);
+        }
+
+        // change in h if region v were recolored to c
+        int delta(int v, int c) {
+            return counts[v * k + c] - counts[v * k + colors[v]];
+        }
+
+        // number of neighbors sharing v's color
+        int conflicts(int v) {
+            return counts[v * k + colors[v]];
+        }
+
+        // vertex of the steepest improving move, or -1 at a local minimum
+        int bestVertex() {
+            return heapSize == 0 ? -1 : heap[0];
+        }
+
+        // recolor region v to c in place, updating h, the neighbors' counts and the cached best moves
+        void move(int v, int c) {
+            int old = colors[v];
+            h += delta(v, c);
+            colors[v] = c;
+            for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                int u = graph.targets[e];
+                counts[u * k + old]--;
+                counts[u * k + c]++;
+            }
+            if (!trackBestMoves) return;
+            refresh(v);
+            for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                refresh(graph.targets[e]);
+            }
+        }
+
+        // recompute the first lowest-delta color for v and fix its heap entry
+        private void refresh(int v) {
+            int best = 0;
+            int color = -1;
+            for (int c = 0; c < k; c++) {
+                if (c != colors[v]) {
+                    int delta = delta(v, c);
+                    if (delta < best) {
+                        best = delta;
+                        color = c;
+                    }
+                }
+            }
+            int previous = bestDelta[v];
+            bestDelta[v] = best;
+            bestColor[v] = color;
+            int i = heapPos[v];
+            if (best < 0 && i < 0) {
+                heap[heapSize] = v;
+                heapPos[v] = heapSize;
+                siftUp(heapSize++);
+            } else if (best >= 0 && i >= 0) {
+                int last = heap[--heapSize];
+                heapPos[v] = -1;
+                if (i < heapSize) {
+                    heap[i] = last;
+                    heapPos[last] = i;
+                    siftUp(i);
+                    siftDown(heapPos[last]);
+                }
+            } else if (i >= 0) {
+                if (best < previous) siftUp(i);
+                else if (best > previous) siftDown(i);
+            }
+        }
+
+        private boolean less(int a, int b) {
+            return bestDelta[a] < bestDelta[b] || (bestDelta[a] == bestDelta[b] && a < b);
+        }
+
+        private void siftUp(int i) {
+            int v = heap[i];
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!less(v, heap[parent])) break;
+                heap[i] = heap[parent];
+                heapPos[heap[i]] = i;
+                i = parent;
+            }
+            heap[i] = v;
+            heapPos[v] = i;
+        }
+
+        private void siftDown(int i) {
+            int v = heap[i];
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= heapSize) break;
+                if (child + 1 < heapSize && less(heap[child + 1], heap[child])) child++;
+                if (!less(heap[child], v)) break;
+                heap[i] = heap[child];
+                heapPos[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = v;
+            heapPos[v] = i;
+        }
+    }
+
+    // Hill-climbing algorithm to reduce conflicts by changing one color at a time
+    static String[] hillClimb(String[] initialState) {
+        return decode(hillClimb(GRAPH, encode(initialState), COLORS.length));
+    }
+
+    // Hill climbing on color codes: always apply the steepest move, first by region then color on ties
+    static int[] hillClimb(Graph graph, int[] initialState, int k) {
+        return hillClimb(graph, initialState, k, new AtomicBoolean());
+    }
+
+    // Same as above, but gives up early once stop is set by another worker
+    static int[] hillClimb(Graph graph, int[] initialState, int k, AtomicBoolean stop) {
+        SearchMetrics metrics = METRICS;
+        long started = metrics.start();
+        ConflictTable table = new ConflictTable(graph, k, Arrays.copyOf(initialState, initialState.length));
+        long neighbors = graph.targets.length;
+
+        // Stop if no improvement
+        int moves = 0;
+        for (int v = table.bestVertex(); v >= 0; v = table.bestVertex()) {
+            neighbors += graph.degree(v);
+            table.move(v, table.bestColor[v]);
+            if ((++moves & 1023) == 0) {
+                if (stop.get()) break;
+                metrics.progress("climb", moves, table.h);
+            }
         }
 
-        return current;
+        metrics.add(SearchMetrics.Counter.NEIGHBORS_EVALUATED, neighbors);
+        metrics.stop("climb", started);
+        return table.colors;
     }
 
     // Generate a random initial state using k colors
     static String[] generateRandomState(int k) {
-        String[] state = new String[REGION_COUNT];
-        Random rand = new Random();
-        for (int i = 0; i < REGION_COUNT; i++) {
-            state[i] = COLORS[rand.nextInt(k)];
+        return decode(generateRandomState(GRAPH, k, new Random()));
+    }
+
+    // Random color codes for every vertex of the graph
+    static int[] generateRandomState(Graph graph, int k, RandomGenerator rand) {
+        int[] state = new int[graph.vertexCount()];
+        for (int i = 0; i < state.length; i++) {
+            state[i] = rand.nextInt(k);
         }
         return state;
     }
 
+    // Best coloring found by the restarts and how many restarts actually ran
+    static class SearchResult {
+        final int[] colors;
+        final int h;
+        int restarts;
+
+        SearchResult(int[] colors, int h) {
+            this.colors = colors;
+            this.h = h;
+        }
+    }
+
+    // Publish result if it beats the current best, without taking a lock
+    static void offer(AtomicReference<SearchResult> best, SearchResult result) {
+        SearchResult current = best.get();
+        while (current == null || result.h < current.h) {
+            if (best.compareAndSet(current, result)) return;
+            current = best.get();
+        }
+    }
+
+    /**
+     * Random-restart hill climbing spread over a ForkJoinPool. Workers pull restarts
+     * from a shared counter, each with its own SplittableRandom split from seed, and
+     * the first zero-conflict coloring raises a flag that stops every other worker.
+     */
+    static SearchResult parallelRestarts(Graph graph, int k, int numRestarts, int parallelism, long seed) {
+        long started = METRICS.start();
+        AtomicReference<SearchResult> best = new AtomicReference<>();
+        AtomicBoolean solved = new AtomicBoolean();
+        AtomicInteger nextRestart = new AtomicInteger();
+        SplittableRandom root = new SplittableRandom(seed);
+
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int w = 0; w < parallelism; w++) {
+            SplittableRandom rand = root.split();
+            workers.add(() -> {
+                while (!solved.get() && nextRestart.getAndIncrement() < numRestarts) {
+                    METRICS.add(SearchMetrics.Counter.RESTARTS, 1);
+                    int[] result = hillClimb(graph, generateRandomState(graph, k, rand), k, solved);
+                    int h = computeHeuristic(graph, result);
+                    offer(best, new SearchResult(result, h));
+                    // stop everyone once a solution is found
+                    if (h == 0) solved.set(true);
+                }
+                return null;
+            });
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            // rethrow the first worker failure rather than returning without a result
+            for (Future<Void> done : pool.invokeAll(workers)) done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Restarts interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Restart worker failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        SearchResult result = best.get();
+        result.restarts = Math.min(nextRestart.get(), numRestarts);
+        METRICS.stop("restarts", started);
+        return result;
+    }
+
+    // Set of vertex ids with O(1) add, remove and uniform random pick
+    static class VertexSet {
+        final int[] items;
+        final int[] index;
+        int size;
+
+        VertexSet(int n) {
+            items = new int[n];
+            index = new int[n];
+            Arrays.fill(index, -1);
+        }
+
+        void add(int v) {
+            if (index[v] >= 0) return;
+            items[size] = v;
+            index[v] = size++;
+        }
+
+        void remove(int v) {
+            int i = index[v];
+            if (i < 0) return;
+            int last = items[--size];
+            items[i] = last;
+            index[last] = i;
+            index[v] = -1;
+        }
+    }
+
+    // Outcome of a tabu search together with how quickly it got there
+    static class TabuResult extends SearchResult {
+        long iterations;
+        long evaluations;
+        long iterationsToBest;
+        long nanosToBest;
+        long nanos;
+
+        TabuResult(int[] colors, int h) {
+            super(colors, h);
+        }
+    }
+
+    // Minimum number of iterations a vertex is kept from returning to a color it just left
+    static final int TABU_TENURE = 7;
+
+    /**
+     * Min-conflicts tabu search. Each iteration picks a random conflicted vertex and
+     * recolors it with its lowest-delta color, accepting sideways and uphill moves.
+     * The color it left becomes tabu for a tenure that grows with the number of
+     * conflicted vertices; a tabu move is still taken if it beats the best h so far.
+     * Runs until h = 0, maxIterations, or maxMillis (0 for no time limit).
+     */
+    static TabuResult tabuSearch(Graph graph, int[] initialState, int k, long maxIterations, long maxMillis, long seed) {
+        SearchMetrics metrics = METRICS;
+        long started = metrics.start();
+        long startNanos = System.nanoTime();
+        long deadline = maxMillis > 0 ? startNanos + maxMillis * 1_000_000L : Long.MAX_VALUE;
+        SplittableRandom rand = new SplittableRandom(seed);
+        ConflictTable table = new ConflictTable(graph, k, Arrays.copyOf(initialState, initialState.length), false);
+        int[] colors = table.colors;
+        int n = colors.length;
+
+        VertexSet conflicted = new VertexSet(n);
+        for (int v = 0; v < n; v++) {
+            if (table.conflicts(v) > 0) conflicted.add(v);
+        }
+
+        // Best coloring so far, brought up to date from a log of the moves made since
+        // it was taken, so recording a new best costs O(moves) rather than O(n)
+        int[] best = Arrays.copyOf(colors, n);
+        int bestH = table.h;
+        int logCapacity = Math.max(1024, n);
+        int[] logVertex = new int[logCapacity];
+        int[] logColor = new int[logCapacity];
+        int logSize = 0;
+        boolean logOverflow = false;
+
+        long[] tabuUntil = new long[n * k];
+        long iteration = 0;
+        long evaluations = 0;
+        long neighbors = graph.targets.length;
+        long iterationsToBest = 0;
+        long nanosToBest = 0;
+
+        while (bestH > 0 && iteration < maxIterations) {
+            if ((iteration & 1023) == 0) {
+                if (System.nanoTime() > deadline) break;
+                metrics.progress("tabu", iteration, bestH);
+            }
+            iteration++;
+
+            int v = conflicted.items[rand.nextInt(conflicted.size)];
+            int moveColor = -1;
+            int moveDelta = Integer.MAX_VALUE;
+            int ties = 0;
+            for (int c = 0; c < k; c++) {
+                if (c == colors[v]) continue;
+                evaluations++;
+                int delta = table.delta(v, c);
+                // aspiration: a tabu move is allowed when it reaches a new best h
+                if (tabuUntil[v * k + c] > iteration && table.h + delta >= bestH) continue;
+                if (delta < moveDelta) {
+                    moveDelta = delta;
+                    moveColor = c;
+                    ties = 1;
+                } else if (delta == moveDelta && rand.nextInt(++ties) == 0) {
+                    moveColor = c;
+                }
+            }
+            // every color is tabu for this vertex, try another one
+            if (moveColor < 0) continue;
+
+            int old = colors[v];
+            table.move(v, moveColor);
+            tabuUntil[v * k + old] = iteration + TABU_TENURE + rand.nextInt(10) + (long) (0.6 * conflicted.size);
+
+            // only v and its neighbors can enter or leave the conflicted set
+            neighbors += graph.degree(v);
+            if (table.conflicts(v) > 0) conflicted.add(v); else conflicted.remove(v);
+            for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                int u = graph.targets[e];
+                if (table.conflicts(u) > 0) conflicted.add(u); else conflicted.remove(u);
+            }
+
+            if (logSize < logCapacity) {
+                logVertex[logSize] = v;
+                logColor[logSize++] = moveColor;
+            } else {
+                logOverflow = true;
+            }
+
+            if (table.h < bestH) {
+                if (logOverflow) {
+                    System.arraycopy(colors, 0, best, 0, n);
+                } else {
+                    for (int i = 0; i < logSize; i++) best[logVertex[i]] = logColor[i];
+                }
+                logSize = 0;
+                logOverflow = false;
+                bestH = table.h;
+                iterationsToBest = iteration;
+                nanosToBest = System.nanoTime() - startNanos;
+            }
+        }
+
+        TabuResult done = new TabuResult(best, bestH);
+        done.iterations = iteration;
+        done.evaluations = evaluations;
+        done.iterationsToBest = iterationsToBest;
+        done.nanosToBest = nanosToBest;
+        done.nanos = System.nanoTime() - startNanos;
+        done.restarts = 1;
+        metrics.add(SearchMetrics.Counter.NEIGHBORS_EVALUATED, neighbors);
+        metrics.stop("tabu", started);
+        return done;
+    }
+
+    // Outcome of the cost phase that runs on a valid coloring
+    static class CostResult extends SearchResult {
+        long initialCost;
+        long cost;
+        long moves;
+        long kempeSwaps;
+        long nanos;
+
+        CostResult(int[] colors, int h) {
+            super(colors, h);
+        }
+    }
+
+    // Largest two-color component a Kempe swap will consider
+    static final int KEMPE_LIMIT = 10_000;
+
+    /**
+     * Lower the total cost of a zero-conflict coloring without breaking it. Single
+     * moves recolor a vertex to the cheapest color none of its neighbors use; when
+     * none are left, Kempe chain swaps exchange two colors over a connected two-color
+     * component whenever that lowers the cost. Both keep h = 0, and the cost is kept
+     * up to date from per-move deltas. Stops at a local optimum or after maxMillis
+     * (0 for no time limit).
+     */
+    static CostResult minimizeCost(Graph graph, int[] validState, int k, int[] weights, long maxMillis) {
+        long started = METRICS.start();
+        long startNanos = System.nanoTime();
+        long deadline = maxMillis > 0 ? startNanos + maxMillis * 1_000_000L : Long.MAX_VALUE;
+        ConflictTable table = new ConflictTable(graph, k, Arrays.copyOf(validState, validState.length), false);
+        if (table.h != 0) {
+            throw new IllegalArgumentException("Cost phase needs a coloring with h = 0, got h = " + table.h);
+        }
+        int[] colors = table.colors;
+        int n = colors.length;
+        long cost = computeCost(colors, weights);
+        long initialCost = cost;
+        long moves = 0;
+        long kempeSwaps = 0;
+        long neighbors = graph.targets.length;
+
+        VertexSet pending = new VertexSet(n);
+        int[] stamp = new int[n];
+        int[] visited = new int[n];
+        int generation = 0;
+        int pass = 0;
+        int[] component = new int[Math.min(n, KEMPE_LIMIT)];
+
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadline) {
+            improved = false;
+
+            // single moves, revisiting the neighbors of every vertex that frees up a color
+            for (int v = 0; v < n; v++) pending.add(v);
+            while (pending.size > 0) {
+                int v = pending.items[pending.size - 1];
+                pending.remove(v);
+                int cheapest = colors[v];
+                for (int c = 0; c < k; c++) {
+                    if (weights[c] < weights[cheapest] && table.counts[v * k + c] == 0) cheapest = c;
+                }
+                if (cheapest == colors[v]) continue;
+                cost += weights[cheapest] - weights[colors[v]];
+                table.move(v, cheapest);
+                moves++;
+                neighbors += graph.degree(v);
+                for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) pending.add(graph.targets[e]);
+            }
+
+            // Kempe chain swaps: for each pair of colors a and cheaper b, visit every {a, b}
+            // component once and swap it when more of it sits on the expensive color
+            for (int a = 0; a < k; a++) {
+                for (int b = 0; b < k; b++) {
+                    if (weights[b] >= weights[a]) continue;
+                    pass++;
+                    for (int v = 0; v < n && System.nanoTime() < deadline; v++) {
+                        if (colors[v] != a || visited[v] == pass) continue;
+
+                        // collect the component containing v and the cost change of swapping it
+                        generation++;
+                        int size = 0;
+                        long delta = 0;
+                        boolean truncated = false;
+                        component[size++] = v;
+                        stamp[v] = generation;
+                        for (int head = 0; head < size && !truncated; head++) {
+                            int u = component[head];
+                            visited[u] = pass;
+                            delta += colors[u] == a ? weights[b] - weights[a] : weights[a] - weights[b];
+                            neighbors += graph.degree(u);
+                            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                                int w = graph.targets[e];
+                                if (stamp[w] != generation && (colors[w] == a || colors[w] == b)) {
+                                    // the component has more vertices than the limit allows
+                                    if (size == component.length) {
+                                        truncated = true;
+                                        break;
+                                    }
+                                    stamp[w] = generation;
+                                    component[size++] = w;
+                                }
+                            }
+                        }
+                        // too large to swap within the limit, and delta only covers part of it
+                        if (truncated) continue;
+                        if (delta >= 0) continue;
+
+                        for (int i = 0; i < size; i++) {
+                            int u = component[i];
+                            table.move(u, colors[u] == a ? b : a);
+                        }
+                        cost += delta;
+                        kempeSwaps++;
+                        improved = true;
+                    }
+                }
+            }
+        }
+
+        CostResult result = new CostResult(colors, table.h);
+        result.initialCost = initialCost;
+        result.cost = cost;
+        result.moves = moves;
+        result.kempeSwaps = kempeSwaps;
+        result.nanos = System.nanoTime() - startNanos;
+        result.restarts = 1;
+        METRICS.add(SearchMetrics.Counter.NEIGHBORS_EVALUATED, neighbors);
+        METRICS.stop("cost", started);
+        return result;
+    }
+
     public static void main(String[] args) {
         // Read k (number of colors) from command line argument
         if (args.length < 1) {
-            System.err.println("Usage: java HillClimbingColoring <k>");
+            System.err.println("Usage: java HillClimbingColoring <k> [edge-list-file] [--restarts n] [--threads p] [--seed s]"
+                    + " [--mode climb|tabu|cost] [--iterations n] [--time-ms t]"
+                    + " [--palette name:weight,...] [--metrics out.json] [--progress ms] [--jfr]");
             return;
         }
 
@@ -119,39 +873,127 @@ public class HillClimbingColoring {
             return;
         }
 
-        if (k < 1 || k > ALL_COLORS.length) {
-            System.err.println("Please enter a k value between 1 and " + ALL_COLORS.length);
+
+        // Remaining arguments: an optional edge-list path and search options
+        String graphFile = null;
+        int numRestarts = 100;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        long seed = new Random().nextLong();
+        String mode = "climb";
+        long maxIterations = 10_000_000L;
+        long maxMillis = 0;
+        String metricsFile = null;
+        long progressMillis = 0;
+        boolean jfr = false;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--restarts": numRestarts = Integer.parseInt(args[++i]); break;
+                    case "--threads": parallelism = Integer.parseInt(args[++i]); break;
+                    case "--seed": seed = Long.parseLong(args[++i]); break;
+                    case "--mode": mode = args[++i]; break;
+                    case "--iterations": maxIterations = Long.parseLong(args[++i]); break;
+                    case "--time-ms": maxMillis = Long.parseLong(args[++i]); break;
+                    case "--palette": PALETTE = Palette.parse(args[++i]); break;
+                    case "--metrics": metricsFile = args[++i]; break;
+                    case "--progress": progressMillis = Long.parseLong(args[++i]); break;
+                    case "--jfr": jfr = true; break;
+                    default: graphFile = args[i];
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Options --restarts, --threads, --seed, --iterations, --time-ms and --progress need a numeric value.");
+            return;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid palette: " + e.getMessage());
+            return;
+        }
+
+        if (k < 1 || k > PALETTE.names.length) {
+            System.err.println("Please enter a k value between 1 and " + PALETTE.names.length);
             return;
         }
 
-        COLORS = Arrays.copyOf(ALL_COLORS, k);
+        COLORS = Arrays.copyOf(PALETTE.names, k);
+        WEIGHTS = Arrays.copyOf(PALETTE.weights, k);
 
-        // Multiple restarts to avoid getting stuck in local minima
-        int numRestarts = 100;
-        String[] bestState = null;
-        int bestH = Integer.MAX_VALUE;
+        if (numRestarts < 1 || parallelism < 1) {
+            System.err.println("Restarts and threads must be at least 1.");
+            return;
+        }
+
+        if (!mode.equals("climb") && !mode.equals("tabu") && !mode.equals("cost")) {
+            System.err.println("Mode must be climb, tabu or cost.");
+            return;
+        }
+
+        // Optionally replace the Canada map with a graph read from an edge list
+        boolean canadaMap = graphFile == null;
+        if (!canadaMap) {
+            try {
+                GRAPH = Graph.load(Paths.get(graphFile));
+            } catch (IOException e) {
+                System.err.println("Could not read graph: " + e.getMessage());
+                return;
+            }
+            System.out.println("Loaded graph with " + GRAPH.vertexCount() + " vertices and "
+                    + GRAPH.targets.length / 2 + " edges");
+        }
 
-        for (int i = 0; i < numRestarts; i++) {
-            String[] state = generateRandomState(k);
-            String[] result = hillClimb(state);
-            int h = computeHeuristic(result);
-            if (h < bestH) {
-                bestH = h;
-                bestState = result;
+        // Counters and phase timers, written as JSON at the end; --progress and --jfr imply them
+        if (metricsFile != null || progressMillis > 0 || jfr) {
+            METRICS = new SearchMetrics();
+            if (progressMillis > 0) {
+                METRICS.setProgressListener((phase, step, value) ->
+                        System.out.printf("[%s] step %d, h = %d%n", phase, step, value), progressMillis);
             }
-            // stop early if solution found
-            if (h == 0) break;
+            if (jfr) METRICS.recordJfr();
         }
 
+        SearchResult best;
+        if (mode.equals("tabu") || mode.equals("cost")) {
+            // One long tabu search instead of many independent climbs
+            TabuResult tabu = tabuSearch(GRAPH, generateRandomState(GRAPH, k, new SplittableRandom(seed)), k,
+                    maxIterations, maxMillis, seed);
+            best = tabu;
+            System.out.println("\n=== Tabu Search Result ===");
+            System.out.printf("Iterations: %d (best reached at %d, %.1f ms)%n",
+                    tabu.iterations, tabu.iterationsToBest, tabu.nanosToBest / 1e6);
+            System.out.printf("Evaluations: %d in %.1f ms (%.0f evaluations/s)%n",
+                    tabu.evaluations, tabu.nanos / 1e6, tabu.evaluations / Math.max(tabu.nanos / 1e9, 1e-9));
+
+            // Once the coloring is valid, keep lowering its cost
+            if (mode.equals("cost") && tabu.h == 0) {
+                CostResult cheap = minimizeCost(GRAPH, tabu.colors, k, WEIGHTS, maxMillis);
+                best = cheap;
+                System.out.printf("Cost: %d -> %d (%d moves, %d Kempe swaps, %.1f ms)%n",
+                        cheap.initialCost, cheap.cost, cheap.moves, cheap.kempeSwaps, cheap.nanos / 1e6);
+            }
+        } else {
+            // Multiple restarts to avoid getting stuck in local minima, run in parallel
+            best = parallelRestarts(GRAPH, k, numRestarts, parallelism, seed);
+            System.out.println("\n=== Best Result After " + best.restarts + " Restarts (" + parallelism + " threads) ===");
+        }
+        String[] bestState = decode(best.colors);
 
         // Output the best result found
-        System.out.println("\n=== Best Result After " + numRestarts + " Restarts ===");
-        String[] regions = {"BC","AB","SK","MB","ON","QC","NB","NS","PEI","NL","NU","NT","YT"};
-        for (int i = 0; i < REGION_COUNT; i++) {
-            System.out.printf("%s: %s%n", regions[i], bestState[i]);
+        if (canadaMap) {
+            String[] regions = {"BC","AB","SK","MB","ON","QC","NB","NS","PEI","NL","NU","NT","YT"};
+            for (int i = 0; i < REGION_COUNT; i++) {
+                System.out.printf("%s: %s%n", regions[i], bestState[i]);
+            }
         }
         System.out.println("Final h(S): " + computeHeuristic(bestState));
         System.out.println("Total cost: " + computeCost(bestState));
         System.out.println("Is goal state: " + isGoalState(bestState));
+
+        METRICS.close();
+        if (metricsFile != null) {
+            try {
+                METRICS.writeJson(Paths.get(metricsFile));
+            } catch (IOException e) {
+                System.err.println("Could not write metrics: " + e.getMessage());
+            }
+        }
     }
 }
@@ -1,5 +1,18 @@
 import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 public class ID3DecisionTree {
 
@@ -8,87 +21,484 @@ public class ID3DecisionTree {
         String attribute;  // the attribute this node splits on
         Map<String, Node> children = new HashMap<>();  // children nodes for each attribute value
         String label = null; // if leaf node
+        String majority = null;  // most common class at this node, used for values never seen here
 
         Node(String attr) {
             this.attribute = attr;
         }
     }
 
-    static List<String[]> dataset = new ArrayList<>();  // stores the dataset rows
-    static List<String> attributes = new ArrayList<>();  // stores attribute names
+    /**
+     * Maps the distinct values of one column to dense int ids, in order of first appearance.
+     * Values are keyed by their UTF-8 bytes in an open-addressing table, so a loader can
+     * intern a field straight from its input buffer and only allocates a String the first
+     * time a value is seen.
+     */
+    static class Dictionary {
+        final List<String> values = new ArrayList<>();
+        byte[][] keys = new byte[16][];  // UTF-8 bytes of each value, by id
+        int[] hashes = new int[16];  // hash of each value, by id
+        int[] slots = new int[32];  // id + 1 of the value stored in each slot, 0 if empty
 
-    // check if all records have the same class label
-    static boolean isPure(List<String[]> data) {
-        String first = data.get(0)[data.get(0).length - 1];
-        for (String[] row : data) {  // iterate through each record
-            if (!row[row.length - 1].equals(first)) return false;
+        int intern(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            return intern(ByteBuffer.wrap(bytes), 0, bytes.length);
+        }
+
+        // intern the value held in buffer[start, end)
+        int intern(ByteBuffer buffer, int start, int end) {
+            int hash = hash(buffer, start, end);
+            int mask = slots.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                int id = slots[slot] - 1;
+                if (id < 0) {
+                    return add(buffer, start, end, hash, slot);
+                }
+                if (hashes[id] == hash && matches(keys[id], buffer, start, end)) {
+                    return id;
+                }
+            }
+        }
+
+        // id of a value, or -1 if it was never interned
+        int lookup(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            int hash = hash(buffer, 0, bytes.length);
+            int mask = slots.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                int id = slots[slot] - 1;
+                if (id < 0) return -1;
+                if (hashes[id] == hash && matches(keys[id], buffer, 0, bytes.length)) return id;
+            }
+        }
+
+        String value(int id) {
+            return values.get(id);
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        private int add(ByteBuffer buffer, int start, int end, int hash, int slot) {
+            int id = values.size();
+            byte[] key = new byte[end - start];
+            for (int i = 0; i < key.length; i++) key[i] = buffer.get(start + i);
+            if (id == keys.length) {
+                keys = Arrays.copyOf(keys, id * 2);
+                hashes = Arrays.copyOf(hashes, id * 2);
+            }
+            keys[id] = key;
+            hashes[id] = hash;
+            values.add(new String(key, StandardCharsets.UTF_8));
+            slots[slot] = id + 1;
+            if ((id + 1) * 2 > slots.length) rehash();
+            return id;
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            int mask = slots.length - 1;
+            for (int id = 0; id < values.size(); id++) {
+                int slot = hashes[id] & mask;
+                while (slots[slot] != 0) slot = (slot + 1) & mask;
+                slots[slot] = id + 1;
+            }
+        }
+
+        private static int hash(ByteBuffer buffer, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) h = 31 * h + buffer.get(i);
+            return h ^ (h >>> 16);
+        }
+
+        private static boolean matches(byte[] key, ByteBuffer buffer, int start, int end) {
+            if (key.length != end - start) return false;
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != buffer.get(start + i)) return false;
+            }
+            return true;
         }
-        return true;
     }
 
-    static String majorityClass(List<String[]> data) {
-        Map<String, Integer> count = new HashMap<>();
-        for (String[] row : data) {
-            String label = row[row.length - 1];
-            count.put(label, count.getOrDefault(label, 0) + 1);
+    // column-oriented dataset: every attribute and the label is stored as an int column of dictionary ids
+    static class Dataset {
+        final String[] attributeNames;  // names of the attribute columns, label excluded
+        final String labelName;
+        final Dictionary[] dictionaries;  // one per attribute
+        final Dictionary labelDictionary = new Dictionary();
+        int[][] columns;  // columns[attribute][row]
+        int[] labels;  // label id of each row
+        int rows = 0;
+
+        // header holds every column name, labelIndex says which one is the class label
+        Dataset(String[] header, int labelIndex) {
+            attributeNames = new String[header.length - 1];
+            for (int i = 0, a = 0; i < header.length; i++) {
+                if (i != labelIndex) attributeNames[a++] = header[i];
+            }
+            labelName = header[labelIndex];
+            dictionaries = new Dictionary[attributeNames.length];
+            for (int a = 0; a < dictionaries.length; a++) dictionaries[a] = new Dictionary();
+            columns = new int[attributeNames.length][16];
+            labels = new int[16];
         }
 
-        String majority = null;
+        int attributeCount() {
+            return attributeNames.length;
+        }
+
+        int classCount() {
+            return labelDictionary.size();
+        }
+
+        // append one record given as raw column values in header order
+        void addRow(String[] values, int labelIndex) {
+            if (values.length != attributeNames.length + 1) {
+                throw new IllegalArgumentException("Expected " + (attributeNames.length + 1) + " values but got " + values.length + " in row " + (rows + 1));
+            }
+            ensureCapacity(rows + 1);
+            for (int i = 0, a = 0; i < values.length; i++) {
+                if (i == labelIndex) {
+                    labels[rows] = labelDictionary.intern(values[i]);
+                } else {
+                    columns[a][rows] = dictionaries[a].intern(values[i]);
+                    a++;
+                }
+            }
+            rows++;
+        }
+
+        void ensureCapacity(int capacity) {
+            if (capacity <= labels.length) return;
+            int newCapacity = Math.max(capacity, labels.length * 2);
+            for (int a = 0; a < columns.length; a++) columns[a] = Arrays.copyOf(columns[a], newCapacity);
+            labels = Arrays.copyOf(labels, newCapacity);
+        }
+
+        // row indices 0..rows-1, the starting point for buildTree
+        int[] allRows() {
+            int[] rowIds = new int[rows];
+            for (int r = 0; r < rows; r++) rowIds[r] = r;
+            return rowIds;
+        }
+    }
+
+    // largest slice of the input mapped at once; a record must fit inside one window
+    static final int MAP_WINDOW = 1 << 30;
+
+    // load a CSV file whose first line is the header; labelColumn is a column name or zero-based index
+    static Dataset loadCsv(Path path, String labelColumn) throws IOException {
+        return loadCsv(path, labelColumn, MAP_WINDOW);
+    }
+
+    /**
+     * Memory-maps the file one window at a time and tokenizes it on ',' and newlines
+     * without building line strings. Every field is interned straight from the mapped
+     * bytes into its column's dictionary. A record that runs past the end of a window
+     * is re-read at the start of the next one.
+     */
+    static Dataset loadCsv(Path path, String labelColumn, int window) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            Dataset data = null;
+            int labelIndex = -1;
+            int[] fieldStarts = new int[16];
+            int[] fieldEnds = new int[16];
+            long position = 0;
+
+            while (position < size) {
+                int length = (int) Math.min(window, size - position);
+                boolean last = position + length == size;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                int lineStart = 0;
+                while (lineStart < length) {
+                    int fields = 0;
+                    int fieldStart = lineStart;
+                    int i = lineStart;
+                    while (i < length && buffer.get(i) != '\n') {
+                        if (buffer.get(i) == ',') {
+                            if (fields == fieldStarts.length) {
+                                fieldStarts = Arrays.copyOf(fieldStarts, fields * 2);
+                                fieldEnds = Arrays.copyOf(fieldEnds, fields * 2);
+                            }
+                            fieldStarts[fields] = fieldStart;
+                            fieldEnds[fields++] = i;
+                            fieldStart = i + 1;
+                        }
+                        i++;
+                    }
+                    if (i == length && !last) break;  // incomplete record, continue in the next window
+
+                    int lineEnd = i > lineStart && buffer.get(i - 1) == '\r' ? i - 1 : i;  // drop a Windows line ending
+                    if (fields == fieldStarts.length) {
+                        fieldStarts = Arrays.copyOf(fieldStarts, fields * 2);
+                        fieldEnds = Arrays.copyOf(fieldEnds, fields * 2);
+                    }
+                    fieldStarts[fields] = Math.min(fieldStart, lineEnd);
+                    fieldEnds[fields++] = lineEnd;
+
+                    if (lineEnd > lineStart) {  // skip empty lines
+                        if (data == null) {
+                            String[] header = new String[fields];
+                            for (int f = 0; f < fields; f++) header[f] = decode(buffer, fieldStarts[f], fieldEnds[f]);
+                            labelIndex = labelIndex(header, labelColumn);
+                            data = new Dataset(header, labelIndex);
+                        } else {
+                            addRow(data, buffer, fieldStarts, fieldEnds, fields, labelIndex);
+                        }
+                    }
+                    lineStart = i + 1;
+                }
+
+                if (lineStart == 0 && !last) {
+                    throw new IOException("Record longer than " + window + " bytes at offset " + position + " in " + path);
+                }
+                position += Math.min(lineStart, length);
+            }
+
+            if (data == null) throw new IOException(path + " is empty");
+            return data;
+        }
+    }
+
+    // resolve the label column by name first, then as a zero-based index; null means the last column
+    static int labelIndex(String[] header, String labelColumn) {
+        if (labelColumn == null) return header.length - 1;
+        int byName = Arrays.asList(header).indexOf(labelColumn);
+        if (byName >= 0) return byName;
+        try {
+            int index = Integer.parseInt(labelColumn);
+            if (index >= 0 && index < header.length) return index;
+        } catch (NumberFormatException ignored) {
+            // not a number either, reported below
+        }
+        throw new IllegalArgumentException("No label column " + labelColumn + " in header " + Arrays.toString(header));
+    }
+
+    // append the record whose fields are buffer[fieldStarts[f], fieldEnds[f])
+    static void addRow(Dataset data, ByteBuffer buffer, int[] fieldStarts, int[] fieldEnds, int fields, int labelIndex) {
+        if (fields != data.attributeCount() + 1) {
+            throw new IllegalArgumentException("Expected " + (data.attributeCount() + 1) + " values but got " + fields + " in row " + (data.rows + 1));
+        }
+        data.ensureCapacity(data.rows + 1);
+        for (int f = 0, a = 0; f < fields; f++) {
+            if (f == labelIndex) {
+                data.labels[data.rows] = data.labelDictionary.intern(buffer, fieldStarts[f], fieldEnds[f]);
+            } else {
+                data.columns[a][data.rows] = data.dictionaries[a].intern(buffer, fieldStarts[f], fieldEnds[f]);
+                a++;
+            }
+        }
+        data.rows++;
+    }
+
+    static String decode(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) bytes[i] = buffer.get(start + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // check if all records have the same class label
+    static boolean isPure(int[] classCounts) {
+        int nonEmpty = 0;
+        for (int count : classCounts) {
+            if (count > 0) nonEmpty++;
+        }
+        return nonEmpty <= 1;
+    }
+
+    // count how many records of each class fall in rows[from, to)
+    static int[] classCounts(Dataset data, int[] rows, int from, int to) {
+        int[] counts = new int[data.classCount()];
+        for (int i = from; i < to; i++) counts[data.labels[rows[i]]]++;
+        return counts;
+    }
+
+    static int majorityClass(int[] classCounts) {
+        int majority = -1;
         int maxCount = -1;
-        for (Map.Entry<String, Integer> entry : count.entrySet()) {
-            if (entry.getValue() > maxCount) {
-                maxCount = entry.getValue();
-                majority = entry.getKey();
+        for (int c = 0; c < classCounts.length; c++) {
+            if (classCounts[c] > maxCount) {
+                maxCount = classCounts[c];
+                majority = c;
             }
         }
         return majority;  // class that has the biggest count
     }
 
+    // the chosen split of a node: counts[offset + value * classes + label] is its (value x class) table
+    static class Split {
+        final int attribute;
+        final int[] counts;
+        final int offset;
+
+        Split(int attribute, int[] counts, int offset) {
+            this.attribute = attribute;
+            this.counts = counts;
+            this.offset = offset;
+        }
+
+        // class counts of the records that have the given value
+        int[] classCounts(int value, int classes) {
+            int start = offset + value * classes;
+            return Arrays.copyOfRange(counts, start, start + classes);
+        }
+    }
+
     // choose the attribute with the highest information gain
-    static int chooseBestAttribute(List<String[]> data, List<Integer> attrIndices) {
-        double baseEntropy = entropy(data);  // compute entropy before split
-        double bestGain = -1;
-        int bestAttr = -1;
+    static int chooseBestAttribute(Dataset data, int[] rows, int from, int to, List<Integer> attrIndices) {
+        return chooseSplit(data, rows, from, to, attrIndices, classCounts(data, rows, from, to)).attribute;
+    }
 
-        for (int i : attrIndices) {
-            double newEntropy = 0.0;
-            Map<String, List<String[]>> partitions = partitionByAttribute(data, i);
-            for (List<String[]> subset : partitions.values()) {
-                newEntropy += ((double) subset.size() / data.size()) * entropy(subset);  // weighted sum of entropies of each partition
-            }
-            double infoGain = baseEntropy - newEntropy;  // calculate the information gain
-            if (infoGain > bestGain) {
-                bestGain = infoGain;
-                bestAttr = i;
+    /**
+     * Fill the (value x class) count table of every candidate attribute in one scan
+     * over rows[from, to), then score each attribute from its table alone. The table
+     * of the winner is returned so the caller can partition and recurse without
+     * counting again.
+     */
+    static Split chooseSplit(Dataset data, int[] rows, int from, int to, List<Integer> attrIndices, int[] classCounts) {
+        int classes = data.classCount();
+        int candidates = attrIndices.size();
+        int[] attrs = candidateAttributes(attrIndices);
+        int[] offsets = tableOffsets(data, attrs);
+
+        int[][] candidateColumns = new int[candidates][];
+        for (int a = 0; a < candidates; a++) candidateColumns[a] = data.columns[attrs[a]];
+        int[] counts = new int[offsets[candidates]];
+        for (int r = from; r < to; r++) {
+            int row = rows[r];
+            int label = data.labels[row];
+            for (int a = 0; a < candidates; a++) {
+                counts[offsets[a] + candidateColumns[a][row] * classes + label]++;
             }
         }
-        return bestAttr;
+
+        double baseEntropy = entropy(classCounts, to - from);  // compute entropy before split
+        double[] gains = new double[candidates];
+        for (int a = 0; a < candidates; a++) {
+            gains[a] = informationGain(counts, offsets[a], offsets[a + 1], classes, to - from, baseEntropy);
+        }
+        int best = bestCandidate(gains);
+        return new Split(attrs[best], counts, offsets[best]);
+    }
+
+    /**
+     * Same split as chooseSplit, but every candidate attribute fills its own table and
+     * computes its gain in a separate fork/join task, each scanning only its own column.
+     * The tables are identical to the single-scan ones, so the result is too.
+     */
+    static Split chooseSplitParallel(Dataset data, int[] rows, int from, int to, List<Integer> attrIndices, int[] classCounts) {
+        int classes = data.classCount();
+        int candidates = attrIndices.size();
+        int[] attrs = candidateAttributes(attrIndices);
+        int[] offsets = tableOffsets(data, attrs);
+        int[] counts = new int[offsets[candidates]];
+        double baseEntropy = entropy(classCounts, to - from);
+        double[] gains = new double[candidates];
+
+        List<RecursiveAction> tasks = new ArrayList<>();
+        for (int a = 0; a < candidates; a++) {
+            int candidate = a;
+            tasks.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    int[] column = data.columns[attrs[candidate]];
+                    int offset = offsets[candidate];
+                    for (int r = from; r < to; r++) {
+                        int row = rows[r];
+                        counts[offset + column[row] * classes + data.labels[row]]++;
+                    }
+                    gains[candidate] = informationGain(counts, offset, offsets[candidate + 1], classes, to - from, baseEntropy);
+                }
+            });
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        int best = bestCandidate(gains);
+        return new Split(attrs[best], counts, offsets[best]);
+    }
+
+    static int[] candidateAttributes(List<Integer> attrIndices) {
+        int[] attrs = new int[attrIndices.size()];
+        for (int a = 0; a < attrs.length; a++) attrs[a] = attrIndices.get(a);
+        return attrs;
+    }
+
+    // start of each candidate's table when they are laid out back to back, plus the total length
+    static int[] tableOffsets(Dataset data, int[] attrs) {
+        int[] offsets = new int[attrs.length + 1];
+        for (int a = 0; a < attrs.length; a++) {
+            offsets[a + 1] = offsets[a] + data.dictionaries[attrs[a]].size() * data.classCount();
+        }
+        return offsets;
+    }
+
+    // information gain of the table stored in counts[start, end)
+    static double informationGain(int[] counts, int start, int end, int classes, int total, double baseEntropy) {
+        double newEntropy = 0.0;
+        for (int value = start; value < end; value += classes) {
+            int valueTotal = 0;
+            for (int c = value; c < value + classes; c++) valueTotal += counts[c];
+            if (valueTotal == 0) continue;
+            newEntropy += ((double) valueTotal / total) * entropy(counts, value, classes, valueTotal);  // weighted sum of entropies of each partition
+        }
+        return baseEntropy - newEntropy;  // calculate the information gain
     }
 
-    // compute the entropy of the data
-    static double entropy(List<String[]> data) {
-        Map<String, Integer> labelCount = new HashMap<>();
-        for (String[] row : data) {
-            String label = row[row.length - 1];
-            labelCount.put(label, labelCount.getOrDefault(label, 0) + 1);
+    // first candidate with the highest gain
+    static int bestCandidate(double[] gains) {
+        double bestGain = -1;
+        int best = -1;
+        for (int a = 0; a < gains.length; a++) {
+            if (gains[a] > bestGain) {
+                bestGain = gains[a];
+                best = a;
+            }
         }
+        return best;
+    }
+
+    // compute the entropy of a class count distribution
+    static double entropy(int[] classCounts, int total) {
+        return entropy(classCounts, 0, classCounts.length, total);
+    }
+
+    // entropy of counts[offset, offset + length) which sum to total
+    static double entropy(int[] counts, int offset, int length, int total) {
         double entropy = 0.0;
-        for (int count : labelCount.values()) {
-            double p = (double) count / data.size();
+        for (int c = offset; c < offset + length; c++) {
+            if (counts[c] == 0) continue;
+            double p = (double) counts[c] / total;
             entropy -= p * (Math.log(p) / Math.log(2));  // entropy formula
         }
         return entropy;
     }
 
-    // partition the data based on attribute value
-    static Map<String, List<String[]>> partitionByAttribute(List<String[]> data, int attrIndex) {
-        Map<String, List<String[]>> partitions = new HashMap<>();
-        for (String[] row : data) {
-            String key = row[attrIndex];
-            partitions.putIfAbsent(key, new ArrayList<>());  // ensure that there is a corresponding value for the attribute in the set.
-            partitions.get(key).add(row);  // add the record
+    /**
+     * Partition rows[from, to) by the value of the split attribute with a counting sort,
+     * taking the segment sizes from the split's count table. Rows are reordered in place
+     * (scratch must be at least as long as rows) and the returned array holds the start
+     * of each value's segment, with one extra entry for to.
+     */
+    static int[] partitionByAttribute(Dataset data, int[] rows, int from, int to, Split split, int[] scratch) {
+        int classes = data.classCount();
+        int arity = data.dictionaries[split.attribute].size();
+        int[] column = data.columns[split.attribute];
+        int[] bounds = new int[arity + 1];
+        bounds[0] = from;
+        for (int v = 0; v < arity; v++) {
+            int valueTotal = 0;
+            for (int c = 0; c < classes; c++) valueTotal += split.counts[split.offset + v * classes + c];
+            bounds[v + 1] = bounds[v] + valueTotal;
         }
-        return partitions;
+
+        int[] next = Arrays.copyOf(bounds, arity);
+        for (int r = from; r < to; r++) scratch[next[column[rows[r]]]++] = rows[r];
+        System.arraycopy(scratch, from, rows, from, to - from);
+        return bounds;
     }
 
     // recursively print the decision tree
@@ -103,49 +513,494 @@ public class ID3DecisionTree {
         }
     }
 
-    // recursive function to build the decision tree
-    static Node buildTree(List<String[]> data, List<Integer> attrIndices) {
-        String majorityLabel = majorityClass(data);  // get majority class
-        if (isPure(data)) {  // all records belong to the same class
+    // build the decision tree over every row of the dataset
+    static Node buildTree(Dataset data) {
+        List<Integer> attrIndices = new ArrayList<>();
+        for (int i = 0; i < data.attributeCount(); i++) attrIndices.add(i);  // list of attribute indices, label is stored separately
+        int[] rows = data.allRows();
+        return buildTree(data, rows, 0, data.rows, attrIndices, classCounts(data, rows, 0, data.rows), new int[data.rows]);
+    }
+
+    // recursive function to build the decision tree over rows[from, to), whose class counts are already known
+    static Node buildTree(Dataset data, int[] rows, int from, int to, List<Integer> attrIndices, int[] classCounts, int[] scratch) {
+        if (isPure(classCounts) || attrIndices.isEmpty()) {  // all records belong to the same class, or no more attributes to split
             Node leaf = new Node(null);
-            leaf.label = data.get(0)[data.get(0).length - 1];
+            leaf.label = data.labelDictionary.value(majorityClass(classCounts));
+            leaf.majority = leaf.label;
             return leaf;
         }
-        if (attrIndices.isEmpty()) {  // no more attributes to split
-            Node leaf = new Node(null);
-            leaf.label = majorityLabel;
-            return leaf;
+
+        Split split = chooseSplit(data, rows, from, to, attrIndices, classCounts);  // choose attribute with highest infomation gain
+        int bestAttr = split.attribute;
+        Node node = new Node(data.attributeNames[bestAttr]);  // create a decision node
+        node.majority = data.labelDictionary.value(majorityClass(classCounts));
+
+        int[] bounds = partitionByAttribute(data, rows, from, to, split, scratch);  // split the data by attribute values
+        List<Integer> newAttrIndices = new ArrayList<>(attrIndices);
+        newAttrIndices.remove((Integer) bestAttr);  // exclude used attribute
+        for (int v = 0; v + 1 < bounds.length; v++) {
+            if (bounds[v] == bounds[v + 1]) continue;  // value does not occur at this node
+            node.children.put(data.dictionaries[bestAttr].value(v),
+                    buildTree(data, rows, bounds[v], bounds[v + 1], newAttrIndices, split.classCounts(v, data.classCount()), scratch));  // recursive call
+        }
+        return node;
+    }
+
+    // nodes with fewer rows than this are built sequentially by the parallel trainer
+    static final int PARALLEL_CUTOFF = 10_000;
+
+    // build the same tree as buildTree(data), forking large subtrees and gain evaluations on the pool
+    static Node buildTreeParallel(Dataset data, ForkJoinPool pool) {
+        List<Integer> attrIndices = new ArrayList<>();
+        for (int i = 0; i < data.attributeCount(); i++) attrIndices.add(i);
+        int[] rows = data.allRows();
+        return pool.invoke(new BuildTask(data, rows, 0, data.rows, attrIndices, classCounts(data, rows, 0, data.rows), new int[data.rows]));
+    }
+
+    /**
+     * Builds the subtree over rows[from, to). Sibling subtrees own disjoint segments of
+     * rows and scratch, so they can be built concurrently; children are still added in
+     * value order, so the result matches the sequential tree exactly.
+     */
+    static class BuildTask extends RecursiveTask<Node> {
+        private static final long serialVersionUID = 1L;
+
+        final Dataset data;
+        final int[] rows;
+        final int from;
+        final int to;
+        final List<Integer> attrIndices;
+        final int[] classCounts;
+        final int[] scratch;
+
+        BuildTask(Dataset data, int[] rows, int from, int to, List<Integer> attrIndices, int[] classCounts, int[] scratch) {
+            this.data = data;
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.attrIndices = attrIndices;
+            this.classCounts = classCounts;
+            this.scratch = scratch;
         }
 
-        int bestAttr = chooseBestAttribute(data, attrIndices);  // choose attribute with highest infomation gain
-        Node node = new Node(attributes.get(bestAttr));  // create a decision node
+        @Override
+        protected Node compute() {
+            if (to - from < PARALLEL_CUTOFF || isPure(classCounts) || attrIndices.isEmpty()) {
+                return buildTree(data, rows, from, to, attrIndices, classCounts, scratch);
+            }
+
+            Split split = chooseSplitParallel(data, rows, from, to, attrIndices, classCounts);
+            int bestAttr = split.attribute;
+            Node node = new Node(data.attributeNames[bestAttr]);
+            node.majority = data.labelDictionary.value(majorityClass(classCounts));
 
-        Map<String, List<String[]>> partitions = partitionByAttribute(data, bestAttr);  // split the data by attribute values
-        for (Map.Entry<String, List<String[]>> entry : partitions.entrySet()) {
+            int[] bounds = partitionByAttribute(data, rows, from, to, split, scratch);
             List<Integer> newAttrIndices = new ArrayList<>(attrIndices);
-            newAttrIndices.remove((Integer) bestAttr);  // exclude used attribute            
-            node.children.put(entry.getKey(), buildTree(entry.getValue(), newAttrIndices));  // recursive call
+            newAttrIndices.remove((Integer) bestAttr);
+
+            BuildTask[] children = new BuildTask[bounds.length - 1];
+            for (int v = 0; v < children.length; v++) {
+                if (bounds[v] == bounds[v + 1]) continue;
+                children[v] = new BuildTask(data, rows, bounds[v], bounds[v + 1], newAttrIndices, split.classCounts(v, data.classCount()), scratch);
+            }
+            ForkJoinTask.invokeAll(Arrays.stream(children).filter(Objects::nonNull).toArray(BuildTask[]::new));
+            for (int v = 0; v < children.length; v++) {
+                if (children[v] != null) node.children.put(data.dictionaries[bestAttr].value(v), children[v].join());
+            }
+            return node;
         }
-        return node;
+    }
+
+    // structural equality of two trees, used to check the parallel build against the sequential one
+    static boolean sameTree(Node a, Node b) {
+        if (!Objects.equals(a.label, b.label) || !Objects.equals(a.attribute, b.attribute)) return false;
+        if (!a.children.keySet().equals(b.children.keySet())) return false;
+        for (Map.Entry<String, Node> entry : a.children.entrySet()) {
+            if (!sameTree(entry.getValue(), b.children.get(entry.getKey()))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * A trained tree flattened into primitive arrays for fast scoring. Nodes are numbered
+     * in preorder with the root at 0. For node n:
+     * feature[n] is the attribute it tests, or -1 for a leaf;
+     * children[childStart[n] + value] is the child for a value id, or -1 if that value
+     * never reached the node during training;
+     * label[n] is the leaf class, or the node's majority class, which is the answer
+     * when the input value has no child.
+     * Value and class ids are those of the training dictionaries.
+     */
+    static class CompiledTree {
+        static final int MAGIC = 0x4944334D;  // "ID3M"
+        static final int VERSION = 1;
+
+        final String[] attributeNames;
+        final String labelName;
+        final Dictionary[] dictionaries;
+        final Dictionary labelDictionary;
+        final int[] feature;
+        final int[] childStart;  // one extra entry so node n owns children[childStart[n], childStart[n + 1])
+        final int[] children;
+        final int[] label;
+
+        CompiledTree(String[] attributeNames, String labelName, Dictionary[] dictionaries, Dictionary labelDictionary,
+                     int[] feature, int[] childStart, int[] children, int[] label) {
+            this.attributeNames = attributeNames;
+            this.labelName = labelName;
+            this.dictionaries = dictionaries;
+            this.labelDictionary = labelDictionary;
+            this.feature = feature;
+            this.childStart = childStart;
+            this.children = children;
+            this.label = label;
+        }
+
+        int nodeCount() {
+            return feature.length;
+        }
+
+        /**
+         * Write the model as: magic, version, attribute names with their dictionaries,
+         * label name and label dictionary, then the node count and the feature, childStart,
+         * children and label arrays. Strings are length-prefixed UTF-8; all numbers are
+         * big-endian ints.
+         */
+        void save(Path path) throws IOException {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(attributeNames.length);
+                for (int a = 0; a < attributeNames.length; a++) {
+                    writeString(out, attributeNames[a]);
+                    writeDictionary(out, dictionaries[a]);
+                }
+                writeString(out, labelName);
+                writeDictionary(out, labelDictionary);
+                out.writeInt(feature.length);
+                writeInts(out, feature);
+                writeInts(out, childStart);
+                out.writeInt(children.length);
+                writeInts(out, children);
+                writeInts(out, label);
+            }
+        }
+
+        // read a model written by save, memory-mapping the file
+        static CompiledTree load(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (in.remaining() < 8 || in.getInt() != MAGIC) {
+                    throw new IOException(path + " is not an ID3 model file");
+                }
+                int version = in.getInt();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported model version " + version + " in " + path + ", expected " + VERSION);
+                }
+                String[] attributeNames = new String[readCount(in)];
+                Dictionary[] dictionaries = new Dictionary[attributeNames.length];
+                for (int a = 0; a < attributeNames.length; a++) {
+                    attributeNames[a] = readString(in);
+                    dictionaries[a] = readDictionary(in);
+                }
+                String labelName = readString(in);
+                Dictionary labelDictionary = readDictionary(in);
+                int nodes = readCount(in);
+                int[] feature = readInts(in, nodes);
+                int[] childStart = readInts(in, nodes + 1);
+                int[] children = readInts(in, readCount(in));
+                int[] label = readInts(in, nodes);
+                if (in.hasRemaining()) {
+                    throw new IOException(in.remaining() + " unexpected trailing bytes in " + path);
+                }
+                validate(feature, childStart, children, label, dictionaries, labelDictionary);
+                return new CompiledTree(attributeNames, labelName, dictionaries, labelDictionary, feature, childStart, children, label);
+            } catch (BufferUnderflowException e) {
+                throw new IOException(path + " is truncated");
+            }
+        }
+
+        /**
+         * Check the node arrays before predict walks them: a corrupt file of the right
+         * length could otherwise send it out of bounds or, with a child pointing back
+         * up the tree, into an endless loop. Nodes are numbered in preorder, so every
+         * child must come after its parent.
+         */
+        private static void validate(int[] feature, int[] childStart, int[] children, int[] label,
+                                     Dictionary[] dictionaries, Dictionary labelDictionary) throws IOException {
+            int nodes = feature.length;
+            if (nodes == 0) throw new IOException("Corrupt model file: no nodes");
+            if (childStart[0] != 0 || childStart[nodes] != children.length) {
+                throw new IOException("Corrupt model file: child table does not span " + children.length + " entries");
+            }
+            for (int n = 0; n < nodes; n++) {
+                int width = childStart[n + 1] - childStart[n];
+                if (feature[n] < -1 || feature[n] >= dictionaries.length) {
+                    throw new IOException("Corrupt model file: node " + n + " splits on attribute " + feature[n]);
+                }
+                if (width != (feature[n] < 0 ? 0 : dictionaries[feature[n]].size())) {
+                    throw new IOException("Corrupt model file: node " + n + " has " + width + " child slots");
+                }
+                if (label[n] < 0 || label[n] >= labelDictionary.size()) {
+                    throw new IOException("Corrupt model file: node " + n + " has label " + label[n]);
+                }
+                for (int c = childStart[n]; c < childStart[n + 1]; c++) {
+                    if (children[c] != -1 && (children[c] <= n || children[c] >= nodes)) {
+                        throw new IOException("Corrupt model file: node " + n + " has child " + children[c]);
+                    }
+                }
+            }
+        }
+
+        // same attributes, dictionaries and node arrays, used to check a save/load round trip
+        boolean sameModel(CompiledTree other) {
+            if (!Arrays.equals(attributeNames, other.attributeNames) || !labelName.equals(other.labelName)) return false;
+            for (int a = 0; a < dictionaries.length; a++) {
+                if (!dictionaries[a].values.equals(other.dictionaries[a].values)) return false;
+            }
+            return labelDictionary.values.equals(other.labelDictionary.values)
+                    && Arrays.equals(feature, other.feature) && Arrays.equals(childStart, other.childStart)
+                    && Arrays.equals(children, other.children) && Arrays.equals(label, other.label);
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static void writeDictionary(DataOutputStream out, Dictionary dictionary) throws IOException {
+            out.writeInt(dictionary.size());
+            for (String value : dictionary.values) writeString(out, value);
+        }
+
+        private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+            for (int value : values) out.writeInt(value);
+        }
+
+        private static int readCount(ByteBuffer in) throws IOException {
+            int count = in.getInt();
+            if (count < 0 || count > in.remaining()) throw new IOException("Corrupt model file: bad length " + count);
+            return count;
+        }
+
+        private static String readString(ByteBuffer in) throws IOException {
+            byte[] bytes = new byte[readCount(in)];
+            in.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // values are interned in stored order, so ids match the ones the tree was built with
+        private static Dictionary readDictionary(ByteBuffer in) throws IOException {
+            Dictionary dictionary = new Dictionary();
+            int size = readCount(in);
+            for (int v = 0; v < size; v++) dictionary.intern(readString(in));
+            return dictionary;
+        }
+
+        private static int[] readInts(ByteBuffer in, int count) {
+            int[] values = new int[count];
+            in.asIntBuffer().get(values);
+            in.position(in.position() + count * 4);
+            return values;
+        }
+
+        // class id for one record given as attribute value ids (-1 for an unknown value)
+        int predict(int[] values) {
+            int node = 0;
+            while (feature[node] >= 0) {
+                int value = values[feature[node]];
+                int child = value >= 0 && value < childStart[node + 1] - childStart[node] ? children[childStart[node] + value] : -1;
+                if (child < 0) break;  // unseen value: fall back to this node's majority class
+                node = child;
+            }
+            return label[node];
+        }
+
+        // class name for one record given as raw values in attribute order
+        String predict(String[] values) {
+            int[] ids = new int[values.length];
+            for (int a = 0; a < values.length; a++) ids[a] = dictionaries[a].lookup(values[a]);
+            return labelDictionary.value(predict(ids));
+        }
+
+        /**
+         * Score rows[0, rows) of columnar input, columns[a][row] being the value id of
+         * attribute a in the training dictionaries. Writes class ids into out.
+         */
+        void predict(int[][] columns, int rows, int[] out) {
+            for (int row = 0; row < rows; row++) {
+                int node = 0;
+                while (feature[node] >= 0) {
+                    int value = columns[feature[node]][row];
+                    int child = value >= 0 && value < childStart[node + 1] - childStart[node] ? children[childStart[node] + value] : -1;
+                    if (child < 0) break;
+                    node = child;
+                }
+                out[row] = label[node];
+            }
+        }
+
+        // score every row of a dataset loaded separately, translating its dictionary ids to the model's
+        int[] predict(Dataset data) {
+            int[][] columns = new int[attributeNames.length][];
+            for (int a = 0; a < attributeNames.length; a++) {
+                int source = Arrays.asList(data.attributeNames).indexOf(attributeNames[a]);
+                if (source < 0) throw new IllegalArgumentException("Input has no attribute " + attributeNames[a]);
+                int[] remap = new int[data.dictionaries[source].size()];
+                for (int v = 0; v < remap.length; v++) remap[v] = dictionaries[a].lookup(data.dictionaries[source].value(v));
+                int[] column = new int[data.rows];
+                int[] sourceColumn = data.columns[source];
+                for (int row = 0; row < data.rows; row++) column[row] = remap[sourceColumn[row]];
+                columns[a] = column;
+            }
+            int[] out = new int[data.rows];
+            predict(columns, data.rows, out);
+            return out;
+        }
+    }
+
+    // flatten a trained tree, resolving names and values through the training dataset's dictionaries
+    static CompiledTree compile(Node root, Dataset data) {
+        List<Node> order = new ArrayList<>();
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        Map<Node, Integer> index = new IdentityHashMap<>();
+        while (!stack.isEmpty()) {  // preorder numbering, first child first
+            Node node = stack.pop();
+            index.put(node, order.size());
+            order.add(node);
+            List<Node> ordered = childrenByValue(node, data);
+            for (int i = ordered.size() - 1; i >= 0; i--) {
+                if (ordered.get(i) != null) stack.push(ordered.get(i));
+            }
+        }
+
+        int n = order.size();
+        int[] feature = new int[n];
+        int[] childStart = new int[n + 1];
+        int[] label = new int[n];
+        for (int i = 0; i < n; i++) {
+            Node node = order.get(i);
+            feature[i] = node.label != null ? -1 : Arrays.asList(data.attributeNames).indexOf(node.attribute);
+            childStart[i + 1] = childStart[i] + (feature[i] < 0 ? 0 : data.dictionaries[feature[i]].size());
+            label[i] = data.labelDictionary.lookup(node.label != null ? node.label : node.majority);
+        }
+        int[] children = new int[childStart[n]];
+        Arrays.fill(children, -1);
+        for (int i = 0; i < n; i++) {
+            if (feature[i] < 0) continue;
+            for (Map.Entry<String, Node> entry : order.get(i).children.entrySet()) {
+                children[childStart[i] + data.dictionaries[feature[i]].lookup(entry.getKey())] = index.get(entry.getValue());
+            }
+        }
+        return new CompiledTree(data.attributeNames, data.labelName, data.dictionaries, data.labelDictionary, feature, childStart, children, label);
+    }
+
+    // children of a node indexed by value id, null where a value has no child
+    static List<Node> childrenByValue(Node node, Dataset data) {
+        List<Node> ordered = new ArrayList<>();
+        if (node.label != null) return ordered;
+        Dictionary dictionary = data.dictionaries[Arrays.asList(data.attributeNames).indexOf(node.attribute)];
+        for (int v = 0; v < dictionary.size(); v++) ordered.add(node.children.get(dictionary.value(v)));
+        return ordered;
     }
 
     public static void main(String[] args) throws IOException {
-        // read the CSV file
-        String filename = "student_grades.csv";
-        BufferedReader br = new BufferedReader(new FileReader(filename));
-        String headerLine = br.readLine();  // read attribute names
-        attributes.addAll(Arrays.asList(headerLine.split(",")));
+        // positional arguments: the CSV file (student_grades.csv by default) and the label column (the last one by default)
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--parallel")) {
+                if (i + 1 < args.length && args[i + 1].matches("\\d+")) i++;  // skip the thread count
+            } else if (args[i].equals("--predict") || args[i].equals("--save") || args[i].equals("--model")) {
+                i++;  // skip the option's file
+            } else if (!args[i].startsWith("--")) {
+                positional.add(args[i]);
+            }
+        }
+        String filename = positional.size() > 0 ? positional.get(0) : "student_grades.csv";
+        String labelColumn = positional.size() > 1 ? positional.get(1) : null;
+        List<String> options = Arrays.asList(args);
+        String modelFile = optionValue(args, "--model");
+        String saveFile = optionValue(args, "--save");
+        String predictFile = optionValue(args, "--predict");
+
+        CompiledTree model = null;
+        long start;
+        double seconds;
+        if (modelFile != null) {
+            // --model <file> loads a saved model instead of training one
+            start = System.nanoTime();
+            model = CompiledTree.load(Paths.get(modelFile));
+            System.out.printf("Loaded model with %d nodes in %.2f ms%n", model.nodeCount(), (System.nanoTime() - start) / 1e6);
+        } else {
+            // read the CSV file
+            Path path = Paths.get(filename);
+            start = System.nanoTime();
+            Dataset dataset;
+            try {
+                dataset = loadCsv(path, labelColumn);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                return;
+            }
+            seconds = (System.nanoTime() - start) / 1e9;
+            double megabytes = Files.size(path) / (1024.0 * 1024.0);
+            System.out.printf("Loaded %d rows x %d attributes in %.1f ms (%.0f rows/s, %.1f MB/s)%n",
+                    dataset.rows, dataset.attributeCount(), seconds * 1e3, dataset.rows / seconds, megabytes / seconds);
 
-        String line;
-        while ((line = br.readLine()) != null) {
-            dataset.add(line.split(","));  // read each row into dataset
+            // --parallel [threads] trains on a fork/join pool, --verify also trains sequentially and compares
+            Node root;
+            if (options.contains("--parallel")) {
+                int at = options.indexOf("--parallel");
+                int threads = at + 1 < args.length && args[at + 1].matches("\\d+") ? Integer.parseInt(args[at + 1]) : Runtime.getRuntime().availableProcessors();
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                start = System.nanoTime();
+                root = buildTreeParallel(dataset, pool);
+                long parallelNanos = System.nanoTime() - start;
+                pool.shutdown();
+                if (options.contains("--verify")) {
+                    start = System.nanoTime();
+                    Node serial = buildTree(dataset);
+                    long serialNanos = System.nanoTime() - start;
+                    System.out.printf("Parallel build (%d threads): %.1f ms, sequential build: %.1f ms, identical: %b%n",
+                            threads, parallelNanos / 1e6, serialNanos / 1e6, sameTree(root, serial));
+                }
+            } else {
+                root = buildTree(dataset);
+            }
+            printTree(root, "");
+            if (saveFile != null || predictFile != null) model = compile(root, dataset);
         }
-        br.close();
 
-        List<Integer> attrIndices = new ArrayList<>();
-        for (int i = 0; i < attributes.size() - 1; i++) attrIndices.add(i);  // list of attribute indices, except label
+        // --save <file> writes the compiled model and reads it back to check the round trip
+        if (saveFile != null) {
+            Path path = Paths.get(saveFile);
+            model.save(path);
+            CompiledTree reloaded = CompiledTree.load(path);
+            System.out.printf("Saved model to %s (%d bytes), round trip identical: %b%n", saveFile, Files.size(path), model.sameModel(reloaded));
+        }
+
+        // --predict <file> scores another CSV with the compiled tree and reports accuracy and throughput
+        if (predictFile != null) {
+            Dataset test = loadCsv(Paths.get(predictFile), model.labelName);
+            start = System.nanoTime();
+            int[] predicted = model.predict(test);
+            seconds = (System.nanoTime() - start) / 1e9;
+            int correct = 0;
+            for (int row = 0; row < test.rows; row++) {
+                if (model.labelDictionary.value(predicted[row]).equals(test.labelDictionary.value(test.labels[row]))) correct++;
+            }
+            System.out.printf("Predicted %d rows with %d nodes in %.1f ms (%.0f rows/s), accuracy %.4f%n",
+                    test.rows, model.nodeCount(), seconds * 1e3, test.rows / seconds, (double) correct / test.rows);
+        }
+    }
 
-        Node root = buildTree(dataset, attrIndices);
-        printTree(root, "");
+    // value following a --name option, or null if the option is absent
+    static String optionValue(String[] args, String name) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals(name)) return args[i + 1];
+        }
+        return null;
     }
 }
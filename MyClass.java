@@ -1,7 +1,159 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MyClass {
-    public static void main(String[] args) {
+    // Counters and phase timers of the searches; main swaps in live metrics with --metrics
+    static SearchMetrics METRICS = SearchMetrics.DISABLED;
+
+    public static void main(String[] args) throws IOException {
+        // --metrics out.json, --progress ms, --jfr: counters and phase timers for whatever runs below
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        int metricsAt = options.indexOf("--metrics");
+        String metricsFile = metricsAt >= 0 && metricsAt + 1 < options.size() ? options.get(metricsAt + 1) : null;
+        if (metricsFile != null) options.subList(metricsAt, metricsAt + 2).clear();
+        int progressAt = options.indexOf("--progress");
+        long progressMillis = 0;
+        if (progressAt >= 0) {
+            try {
+                progressMillis = Long.parseLong(options.get(progressAt + 1));
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                System.err.println("Option --progress needs a numeric value (milliseconds between reports).");
+                return;
+            }
+            options.subList(progressAt, progressAt + 2).clear();
+        }
+        boolean jfr = options.remove("--jfr");
+        if (metricsFile != null || progressMillis > 0 || jfr) {
+            METRICS = new SearchMetrics();
+            if (progressMillis > 0) {
+                METRICS.setProgressListener((phase, step, value) ->
+                        System.out.printf("[%s] %d expansions, g = %d%n", phase, step, value), progressMillis);
+            }
+            if (jfr) METRICS.recordJfr();
+        }
+        try {
+            runCommand(options.toArray(new String[0]));
+        } finally {
+            METRICS.close();
+            if (metricsFile != null) METRICS.writeJson(Path.of(metricsFile));
+        }
+    }
+
+    static void runCommand(String[] args) throws IOException {
+        // --graph <edges> <heuristic>[,<heuristic>...] [start] [goal[,goal...]]: one A* query on graphs written by
+        // Workloads grid, towards the nearest of the goals. The heuristic is either one file estimating the distance
+        // to the nearest goal, or one file per goal, combined with minOverGoals.
+        if (args.length > 2 && args[0].equals("--graph")) {
+            long begin = System.nanoTime();
+            Graph graph = Graph.load(Path.of(args[1]));
+            String[] heuristicFiles = args[2].split(",");
+            int[][] goalHeuristics = new int[heuristicFiles.length][];
+            for (int k = 0; k < heuristicFiles.length; k++) {
+                goalHeuristics[k] = loadHeuristic(Path.of(heuristicFiles[k]));
+                if (goalHeuristics[k].length != graph.nodeCount()) {
+                    System.err.println("Heuristic " + heuristicFiles[k] + " has " + goalHeuristics[k].length + " values for " + graph.nodeCount() + " nodes");
+                    return;
+                }
+            }
+            int start = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+            int[] goals = args.length > 4 ? Arrays.stream(args[4].split(",")).mapToInt(Integer::parseInt).toArray()
+                    : new int[]{graph.nodeCount() - 1};
+            for (int node : goals) {
+                if (start < 0 || start >= graph.nodeCount() || node < 0 || node >= graph.nodeCount()) {
+                    System.err.println("Start " + start + " and goal " + node + " must be nodes 0 .. " + (graph.nodeCount() - 1));
+                    return;
+                }
+            }
+            if (heuristicFiles.length > 1 && heuristicFiles.length != goals.length) {
+                System.err.println("Give one heuristic file, or one per goal: " + heuristicFiles.length + " files for " + goals.length + " goals");
+                return;
+            }
+            int[] heuristic = goalHeuristics.length == 1 ? goalHeuristics[0] : minOverGoals(goalHeuristics);
+            System.out.printf("Loaded %d nodes, %d edges in %.1f ms%n",
+                    graph.nodeCount(), graph.targets.length, (System.nanoTime() - begin) / 1e6);
+
+            Search search = new Search(graph.nodeCount());
+            begin = System.nanoTime();
+            int cost = search.run(graph, heuristic, start, goals);
+            double millis = (System.nanoTime() - begin) / 1e6;
+            if (cost == Integer.MAX_VALUE) {
+                System.out.printf("No goal in %s is reachable from %d (%d cycles, %.1f ms)%n", Arrays.toString(goals), start, search.cycles, millis);
+            } else {
+                System.out.printf("Cost %d from %d to %d, %d nodes on the path, %d cycles, %.1f ms%n",
+                        cost, start, search.reachedGoal, search.pathArray(search.reachedGoal).length, search.cycles, millis);
+            }
+            return;
+        }
+
+        // --landmarks <edges> <count> <file>: pick landmarks on a graph written by Workloads grid and save their tables
+        if (args.length > 3 && args[0].equals("--landmarks")) {
+            Graph graph = Graph.load(Path.of(args[1]));
+            long begin = System.nanoTime();
+            Landmarks landmarks = Landmarks.select(graph, Integer.parseInt(args[2]));
+            landmarks.save(Path.of(args[3]));
+            System.out.printf("Saved %d landmarks over %d nodes to %s in %.1f ms%n",
+                    landmarks.nodes.length, graph.nodeCount(), args[3], (System.nanoTime() - begin) / 1e6);
+            return;
+        }
+
+        // --graph-alt <edges> <landmarks> [start] [goal[,goal...]]: like --graph, guided by landmarks saved with
+        // --landmarks, whose tables are memory-mapped rather than read; one goal also runs bidirectional ALT
+        if (args.length > 2 && args[0].equals("--graph-alt")) {
+            long begin = System.nanoTime();
+            Graph graph = Graph.load(Path.of(args[1]));
+            Landmarks landmarks = Landmarks.load(Path.of(args[2]));
+            if (landmarks.nodeCount != graph.nodeCount()) {
+                System.err.println("Landmarks cover " + landmarks.nodeCount + " nodes but the graph has " + graph.nodeCount());
+                return;
+            }
+            int start = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+            int[] goals = args.length > 4 ? Arrays.stream(args[4].split(",")).mapToInt(Integer::parseInt).toArray()
+                    : new int[]{graph.nodeCount() - 1};
+            for (int node : goals) {
+                if (start < 0 || start >= graph.nodeCount() || node < 0 || node >= graph.nodeCount()) {
+                    System.err.println("Start " + start + " and goal " + node + " must be nodes 0 .. " + (graph.nodeCount() - 1));
+                    return;
+                }
+            }
+            System.out.printf("Loaded %d nodes, %d edges, %d landmarks in %.1f ms%n",
+                    graph.nodeCount(), graph.targets.length, landmarks.nodes.length, (System.nanoTime() - begin) / 1e6);
+
+            PathResult result;
+            try (PathService service = new PathService(graph, landmarks)) {
+                begin = System.nanoTime();
+                result = service.query(start, goals);
+            }
+            double millis = (System.nanoTime() - begin) / 1e6;
+            if (!result.found()) {
+                System.out.printf("No goal in %s is reachable from %d (%d cycles, %.1f ms)%n", Arrays.toString(goals), start, result.expansions, millis);
+            } else {
+                System.out.printf("ALT: cost %d from %d to %d, %d nodes on the path, %d cycles, %.1f ms%n",
+                        result.cost, start, result.goal, result.path.length, result.expansions, millis);
+            }
+            if (goals.length == 1) {
+                BidirectionalSearch bidirectional = new BidirectionalSearch(graph, landmarks);
+                begin = System.nanoTime();
+                int cost = bidirectional.run(start, goals[0]);
+                System.out.printf("Bidirectional ALT: cost %s, %d cycles, %.1f ms%n", cost == Integer.MAX_VALUE ? "unreachable" : String.valueOf(cost),
+                        bidirectional.cycles, (System.nanoTime() - begin) / 1e6);
+            }
+            return;
+        }
+
        int [][] cost_matrix = {
                {0,0,0,6,1,0,0,0,0,0},
                {5,0,2,0,0,0,0,0,0,0},
@@ -29,59 +181,905 @@ public class MyClass {
         // Node names for printing
         String[] names = {"A", "B", "C", "D", "E", "H", "J", "G1", "G2", "G3"};
         int start = 0;
-        int minCost = Integer.MAX_VALUE;
-        String bestGoal = " ";
 
-        // Run A* for each goal and track the cheapest path
-        for (int goal : goalStates) {
-            System.out.println("\nSearching from A to " + names[goal]);
-            int cost = aStar(cost_matrix, heuristic_vector, start, goal, names);
-            if (cost < minCost) {
-                minCost = cost;
-                bestGoal = names[goal];
+        // Convert the matrix to adjacency lists once for all searches
+        Graph graph = Graph.fromCostMatrix(cost_matrix);
+
+        // One A* run towards all goals at once; heuristic_vector already estimates the nearest goal
+        int[] goals = goalStates.stream().mapToInt(Integer::intValue).toArray();
+        List<String> goalNames = new ArrayList<>();
+        for (int goal : goals) goalNames.add(names[goal]);
+        System.out.println("\nSearching from A to any of " + String.join(", ", goalNames));
+        Search search = new Search(graph.nodeCount());
+        int minCost = search.run(graph, heuristic_vector, start, goals);
+        printResult(search, minCost, names);
+
+        if (minCost == Integer.MAX_VALUE) {
+            System.out.println("\nNo goal is reachable from A");
+        } else {
+            System.out.println("\nThe cheapest path is to " + names[search.reachedGoal] + " with total cost: " + minCost);
+        }
+
+        // --alt [landmarks]: compare expansions (cycles) for each goal across search variants
+        if (args.length > 0 && args[0].equals("--alt")) {
+            int count = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+            Landmarks landmarks = Landmarks.select(graph, count);
+            BidirectionalSearch bidirectional = new BidirectionalSearch(graph, null);
+            BidirectionalSearch bidirectionalAlt = new BidirectionalSearch(graph, landmarks);
+            System.out.println("\nCycles with " + landmarks.nodes.length + " landmarks:");
+            for (int goal : goals) {
+                int dijkstraCost = search.run(graph, (int[]) null, start, new int[]{goal});
+                int dijkstraCycles = search.cycles;
+                int altCost = search.run(graph, landmarks.towards(new int[]{goal}), start, new int[]{goal});
+                int altCycles = search.cycles;
+                int bidirectionalCost = bidirectional.run(start, goal);
+                int bidirectionalAltCost = bidirectionalAlt.run(start, goal);
+                System.out.printf("A to %s: cost %d, Dijkstra %d, ALT %d, bidirectional %d, bidirectional ALT %d%s%n",
+                        names[goal], dijkstraCost, dijkstraCycles, altCycles, bidirectional.cycles, bidirectionalAlt.cycles,
+                        dijkstraCost == altCost && altCost == bidirectionalCost && bidirectionalCost == bidirectionalAltCost ? "" : " (costs differ)");
             }
         }
 
-        System.out.println("\nThe cheapest path is to " + bestGoal + " with total cost: " + minCost);
+        // --batch <queries> [threads]: random start nodes towards the goal set, to measure throughput
+        if (args.length > 1 && args[0].equals("--batch")) {
+            int queries = Integer.parseInt(args[1]);
+            int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            Random random = new Random(42);
+            int[] starts = new int[queries];
+            int[][] queryGoals = new int[queries][];
+            for (int i = 0; i < queries; i++) {
+                starts[i] = random.nextInt(graph.nodeCount());
+                queryGoals[i] = goals;
+            }
+            PathResult[] results;
+            long begin = System.nanoTime();
+            try (PathService service = new PathService(graph, heuristic_vector)) {
+                results = service.queryBatch(starts, queryGoals, threads);
+            }
+            double seconds = (System.nanoTime() - begin) / 1e9;
+            long expansions = 0;
+            int reached = 0;
+            for (PathResult result : results) {
+                expansions += result.expansions;
+                if (result.found()) reached++;
+            }
+            System.out.printf("%nBatch: %d queries on %d threads in %.1f ms (%.0f queries/s), %d reached a goal, %d expansions%n",
+                    queries, threads, seconds * 1e3, queries / seconds, reached, expansions);
+        }
 
     }
 
     /**
-     * Node class for A* search
-     * index: node identifier
-     * costFromStart: g(n), cost from start to this node
-     * estimatedTotalCost: f(n)=g(n)+h(n), used for priority ordering
-     * parent: reference to reconstruct the final path
+     * Weighted directed graph in compressed sparse row form
+     * offsets: the edges leaving node u are stored at offsets[u] .. offsets[u + 1] - 1
+     * targets: head node of each edge
+     * weights: cost of each edge
+     * The arrays are never written after construction, so one Graph can be
+     * shared by any number of concurrent searches
      */
-    static class Node implements Comparable<Node> {
-        int index;
-        int costFromStart;
-        int estimatedTotalCost;
-        Node parent;
+    static final class Graph {
+        final int[] offsets;
+        final int[] targets;
+        final int[] weights;
+
+        Graph(int[] offsets, int[] targets, int[] weights) {
+            this.offsets = offsets;
+            this.targets = targets;
+            this.weights = weights;
+        }
+
+        int nodeCount() {
+            return offsets.length - 1;
+        }
+
+        /**
+         * Graph with every edge u->v turned into v->u, for searching backwards from a goal
+         */
+        Graph reverse() {
+            int n = nodeCount();
+            int[] reverseOffsets = new int[n + 1];
+            for (int target : targets) reverseOffsets[target + 1]++;
+            for (int v = 0; v < n; v++) reverseOffsets[v + 1] += reverseOffsets[v];
+            int[] next = Arrays.copyOf(reverseOffsets, n);
+            int[] reverseTargets = new int[targets.length];
+            int[] reverseWeights = new int[weights.length];
+            for (int u = 0; u < n; u++) {
+                for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                    int slot = next[targets[e]]++;
+                    reverseTargets[slot] = u;
+                    reverseWeights[slot] = weights[e];
+                }
+            }
+            return new Graph(reverseOffsets, reverseTargets, reverseWeights);
+        }
 
-        public Node(int index, int costFromStart, int estimatedTotalCost, Node parent) {
-            this.index = index;
-            this.costFromStart = costFromStart;
-            this.estimatedTotalCost = estimatedTotalCost;
-            this.parent = parent;
+        /**
+         * Build from a cost matrix in the reversed storage used by main:
+         * matrix[i][u] > 0 is the cost of the edge u->i
+         */
+        static Graph fromCostMatrix(int[][] matrix) {
+            int n = matrix.length;
+            int[] offsets = new int[n + 1];
+            for (int u = 0; u < n; u++) {
+                int degree = 0;
+                for (int i = 0; i < n; i++) {
+                    if (matrix[i][u] > 0) degree++;
+                }
+                offsets[u + 1] = offsets[u] + degree;
+            }
+            int[] targets = new int[offsets[n]];
+            int[] weights = new int[offsets[n]];
+            for (int u = 0; u < n; u++) {
+                int e = offsets[u];
+                for (int i = 0; i < n; i++) {
+                    if (matrix[i][u] > 0) {
+                        targets[e] = i;
+                        weights[e++] = matrix[i][u];
+                    }
+                }
+            }
+            return new Graph(offsets, targets, weights);
         }
 
-        public int compareTo (Node other) {
-            // Compare by f(n) value for priority queue
-            return this.estimatedTotalCost - other.estimatedTotalCost;
+        /**
+         * Load a weighted edge list: one directed edge "u v w" per line with zero-based
+         * node ids and a positive cost, '#' starts a comment line. Node count is the
+         * largest id plus one.
+         */
+        static Graph load(Path path) throws IOException {
+            int[] edges = readInts(path, 3);
+            int edgeCount = edges.length / 3;
+            int n = 0;
+            for (int i = 0; i < edges.length; i += 3) n = Math.max(n, Math.max(edges[i], edges[i + 1]) + 1);
+
+            // counting sort of the edges by source node
+            int[] offsets = new int[n + 1];
+            for (int i = 0; i < edges.length; i += 3) offsets[edges[i] + 1]++;
+            for (int v = 0; v < n; v++) offsets[v + 1] += offsets[v];
+            int[] next = Arrays.copyOf(offsets, n);
+            int[] targets = new int[edgeCount];
+            int[] weights = new int[edgeCount];
+            for (int i = 0; i < edges.length; i += 3) {
+                if (edges[i + 2] <= 0) throw new IOException("Edge " + (i / 3 + 1) + " of " + path + " has non-positive cost " + edges[i + 2]);
+                int slot = next[edges[i]]++;
+                targets[slot] = edges[i + 1];
+                weights[slot] = edges[i + 2];
+            }
+            return new Graph(offsets, targets, weights);
         }
     }
 
     /**
-     * Print the path by backtracking from goal node to start
+     * Heuristic vector from a file with one value per line, in node order
      */
-    public static void printPath(Node node, String[] names) {
+    static int[] loadHeuristic(Path path) throws IOException {
+        return readInts(path, 1);
+    }
+
+    /**
+     * Every number of a text file of non-negative integers, valuesPerLine to a line,
+     * separated by spaces, tabs or commas; blank lines and lines starting with '#' are
+     * skipped. The file is streamed through a fixed-size buffer.
+     */
+    static int[] readInts(Path path, int valuesPerLine) throws IOException {
+        int[] values = new int[1024];
+        int count = 0;
+        int onLine = 0;
+        int line = 1;
+        long value = 0;
+        boolean inNumber = false;
+        boolean inComment = false;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+            boolean eof = false;
+            while (!eof) {
+                buffer.clear();
+                eof = channel.read(buffer) < 0;
+                buffer.flip();
+                // at end of file, feed one final newline to flush the last line
+                int limit = eof ? 1 : buffer.limit();
+                for (int i = 0; i < limit; i++) {
+                    byte b = eof ? (byte) '\n' : buffer.get(i);
+                    if (inComment && b != '\n') continue;
+                    if (b >= '0' && b <= '9') {
+                        value = value * 10 + (b - '0');
+                        if (value > Integer.MAX_VALUE) throw new IOException("Number too large on line " + line + " of " + path);
+                        inNumber = true;
+                    } else if (b == '#' && onLine == 0 && !inNumber) {
+                        inComment = true;
+                    } else if (b == ' ' || b == '\t' || b == ',' || b == '\r' || b == '\n') {
+                        if (inNumber) {
+                            if (count == values.length) values = Arrays.copyOf(values, count * 2);
+                            values[count++] = (int) value;
+                            onLine++;
+                        }
+                        value = 0;
+                        inNumber = false;
+                        if (b == '\n') {
+                            if (onLine != 0 && onLine != valuesPerLine) {
+                                throw new IOException("Expected " + valuesPerLine + " values on line " + line + " of " + path + " but got " + onLine);
+                            }
+                            onLine = 0;
+                            inComment = false;
+                            line++;
+                        }
+                    } else {
+                        throw new IOException("Unexpected character '" + (char) b + "' on line " + line + " of " + path);
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Binary min-heap over node ids with decrease-key
+     * keys: priority of each node, f(n) for A*
+     * pos: index of each node in heap, or -1 if it is not queued
+     * Ties on the key are broken by the smaller node id
+     */
+    static class IndexedHeap {
+        final int[] heap;
+        final int[] pos;
+        final int[] keys;
+        int size;
+
+        IndexedHeap(int capacity) {
+            heap = new int[capacity];
+            pos = new int[capacity];
+            keys = new int[capacity];
+            Arrays.fill(pos, -1);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Remove every queued node in O(size), without restoring heap order on the way
+         */
+        void clear() {
+            for (int i = 0; i < size; i++) pos[heap[i]] = -1;
+            size = 0;
+        }
+
+        /**
+         * Insert node with the given key, or lower its key if it is already queued
+         */
+        void insertOrDecrease(int node, int key) {
+            if (pos[node] < 0) {
+                pos[node] = size;
+                heap[size++] = node;
+            } else if (key >= keys[node]) {
+                return;
+            }
+            keys[node] = key;
+            siftUp(pos[node]);
+        }
+
+        int poll() {
+            int top = heap[0];
+            pos[top] = -1;
+            if (--size > 0) {
+                heap[0] = heap[size];
+                pos[heap[0]] = 0;
+                siftDown(0);
+            }
+            return top;
+        }
+
+        private boolean less(int a, int b) {
+            return keys[a] < keys[b] || (keys[a] == keys[b] && a < b);
+        }
+
+        private void siftUp(int i) {
+            int node = heap[i];
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!less(node, heap[parent])) break;
+                heap[i] = heap[parent];
+                pos[heap[i]] = i;
+                i = parent;
+            }
+            heap[i] = node;
+            pos[node] = i;
+        }
+
+        private void siftDown(int i) {
+            int node = heap[i];
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && less(heap[child + 1], heap[child])) child++;
+                if (!less(heap[child], node)) break;
+                heap[i] = heap[child];
+                pos[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = node;
+            pos[node] = i;
+        }
+    }
+
+    /**
+     * Lower bound h(n) on the remaining cost from a node to the goal(s) of a search
+     */
+    interface Heuristic {
+        int estimate(int node);
+
+        /**
+         * Heuristic backed by a vector, h = 0 everywhere when the vector is null
+         */
+        static Heuristic of(int[] vector) {
+            return vector == null ? node -> 0 : node -> vector[node];
+        }
+    }
+
+    /**
+     * Per-search state kept in primitive arrays, allocated once for a graph size
+     * and reused by every search on the same thread
+     * g: cost from start to each node, g(n), valid only where seen == generation
+     * parent: predecessor on the best known path, -1 for the start
+     * seen, closed, goalStamp: a node is reached, expanded or a goal in the current
+     * search when its stamp equals generation, so starting a new search only bumps
+     * the generation instead of clearing arrays
+     * cycles: number of nodes expanded by the last search
+     * reachedGoal: goal the last search ended at, or -1
+     */
+    static class Search {
+        final int[] g;
+        final int[] parent;
+        final int[] seen;
+        final int[] closed;
+        final int[] goalStamp;
+        final IndexedHeap open;
+        int generation;
+        int cycles;
+        int reachedGoal;
+
+        Search(int nodeCount) {
+            g = new int[nodeCount];
+            parent = new int[nodeCount];
+            seen = new int[nodeCount];
+            closed = new int[nodeCount];
+            goalStamp = new int[nodeCount];
+            open = new IndexedHeap(nodeCount);
+        }
+
+        /**
+         * Start a new search: empty the open set and move to a fresh generation,
+         * clearing the stamps only when the counter wraps around
+         */
+        private void reset() {
+            open.clear();
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(seen, 0);
+                Arrays.fill(closed, 0);
+                Arrays.fill(goalStamp, 0);
+                generation = 1;
+            }
+            cycles = 0;
+            reachedGoal = -1;
+        }
+
+        /**
+         * A* from start to goal, expanding each node at most once
+         * @return cost of the path found, or Integer.MAX_VALUE if unreachable
+         */
+        int run(Graph graph, int[] heuristic, int start, int goal) {
+            return run(graph, heuristic, start, new int[]{goal});
+        }
+
+        /**
+         * A* from start to the nearest of several goals in a single search.
+         * The search stops at the first goal taken off the open set, which is the
+         * cheapest one as long as heuristic never overestimates the distance to the
+         * nearest goal (see minOverGoals). The goal is left in reachedGoal.
+         * A null heuristic means h = 0, i.e. Dijkstra.
+         * @return cost of the path found, or Integer.MAX_VALUE if no goal is reachable
+         */
+        int run(Graph graph, int[] heuristic, int start, int[] goals) {
+            return run(graph, Heuristic.of(heuristic), start, goals);
+        }
+
+        /**
+         * Same search with a heuristic computed on demand, e.g. from landmarks
+         */
+        int run(Graph graph, Heuristic heuristic, int start, int[] goals) {
+            SearchMetrics metrics = METRICS;
+            long started = metrics.start();
+            reset();
+            for (int goal : goals) goalStamp[goal] = generation;
+
+            // Initialize: add start node with g(start)=0, f(start)=h(start)
+            g[start] = 0;
+            parent[start] = -1;
+            seen[start] = generation;
+            open.insertOrDecrease(start, heuristic.estimate(start));
+            long pushes = 1;
+            long relaxed = 0;
+
+            // MAX if goal is not reachable
+            int cost = Integer.MAX_VALUE;
+            while (!open.isEmpty()) {
+                int current = open.poll();
+                cycles++;
+                closed[current] = generation;
+
+                if (goalStamp[current] == generation) {
+                    reachedGoal = current;
+                    cost = g[current];
+                    break;
+                }
+                if ((cycles & 4095) == 0) metrics.progress("astar", cycles, g[current]);
+
+                // Relax outgoing edges, lowering the key of nodes already in the open set
+                relaxed += graph.offsets[current + 1] - graph.offsets[current];
+                for (int e = graph.offsets[current]; e < graph.offsets[current + 1]; e++) {
+                    int next = graph.targets[e];
+                    if (closed[next] == generation) continue;
+                    int tentative = g[current] + graph.weights[e];
+                    if (seen[next] != generation || tentative < g[next]) {
+                        seen[next] = generation;
+                        g[next] = tentative;
+                        parent[next] = current;
+                        open.insertOrDecrease(next, tentative + heuristic.estimate(next));
+                        pushes++;
+                    }
+                }
+            }
+
+            metrics.add(SearchMetrics.Counter.NODES_EXPANDED, cycles);
+            metrics.add(SearchMetrics.Counter.NEIGHBORS_EVALUATED, relaxed);
+            metrics.add(SearchMetrics.Counter.HEAP_PUSHES, pushes);
+            metrics.stop("astar", started);
+            return cost;
+        }
+
+        /**
+         * Node ids from start to node, following parent links of the last search
+         */
+        List<Integer> path(int node) {
+            List<Integer> path = new ArrayList<>();
+            for (int n = node; n >= 0; n = parent[n]) path.add(n);
+            Collections.reverse(path);
+            return path;
+        }
+
+        /**
+         * Same as path, as a compact array for query results
+         */
+        int[] pathArray(int node) {
+            int length = 0;
+            for (int n = node; n >= 0; n = parent[n]) length++;
+            int[] path = new int[length];
+            for (int n = node; n >= 0; n = parent[n]) path[--length] = n;
+            return path;
+        }
+    }
+
+    /**
+     * Answer of one path query
+     * cost: path cost, or Integer.MAX_VALUE if no goal is reachable
+     * goal: goal the path ends at, or -1
+     * path: node ids from start to goal, empty if unreachable
+     * expansions: nodes expanded by the search
+     */
+    static final class PathResult {
+        final int cost;
+        final int goal;
+        final int[] path;
+        final int expansions;
+
+        PathResult(int cost, int goal, int[] path, int expansions) {
+            this.cost = cost;
+            this.goal = goal;
+            this.path = path;
+            this.expansions = expansions;
+        }
+
+        boolean found() {
+            return goal >= 0;
+        }
+    }
+
+    /**
+     * Thread-safe A* queries over one shared graph and heuristic, neither of
+     * which is modified. Each calling thread gets its own Search scratch space,
+     * created on first use and reused for every later query on that thread.
+     * Batches run on a pool the service keeps between calls, so its threads keep
+     * their Search buffers too; close shuts the pool down.
+     */
+    static final class PathService implements AutoCloseable {
+        private final Graph graph;
+        private final int[] heuristic;
+        private final Landmarks landmarks;
+        private final ThreadLocal<Search> scratch;
+        private ForkJoinPool pool;
+
+        /**
+         * @param heuristic estimate towards the goals queried, or null for h = 0
+         */
+        PathService(Graph graph, int[] heuristic) {
+            this(graph, heuristic == null ? null : heuristic.clone(), null);
+        }
+
+        /**
+         * Queries guided by ALT bounds towards whatever goals each query names
+         */
+        PathService(Graph graph, Landmarks landmarks) {
+            this(graph, null, landmarks);
+        }
+
+        private PathService(Graph graph, int[] heuristic, Landmarks landmarks) {
+            this.graph = graph;
+            this.heuristic = heuristic;
+            this.landmarks = landmarks;
+            this.scratch = ThreadLocal.withInitial(() -> new Search(graph.nodeCount()));
+        }
+
+        PathResult query(int start, int goal) {
+            return query(start, new int[]{goal});
+        }
+
+        PathResult query(int start, int[] goals) {
+            Search search = scratch.get();
+            Heuristic h = landmarks != null ? landmarks.towards(goals) : Heuristic.of(heuristic);
+            int cost = search.run(graph, h, start, goals);
+            int[] path = search.reachedGoal < 0 ? new int[0] : search.pathArray(search.reachedGoal);
+            return new PathResult(cost, search.reachedGoal, path, search.cycles);
+        }
+
+        /**
+         * Run queries i = 0 .. starts.length - 1 from starts[i] to goals[i] on a pool
+         * of the given size; workers pull query indices from a shared counter
+         * @return results in query order
+         */
+        PathResult[] queryBatch(int[] starts, int[][] goals, int parallelism) {
+            PathResult[] results = new PathResult[starts.length];
+            AtomicInteger next = new AtomicInteger();
+            List<Callable<Void>> workers = new ArrayList<>();
+            for (int w = 0; w < parallelism; w++) {
+                workers.add(() -> {
+                    for (int i = next.getAndIncrement(); i < starts.length; i = next.getAndIncrement()) {
+                        results[i] = query(starts[i], goals[i]);
+                    }
+                    return null;
+                });
+            }
+            try {
+                for (Future<Void> done : pool(parallelism).invokeAll(workers)) done.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Path queries interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Path query failed", e.getCause());
+            }
+            return results;
+        }
+
+        // the batch pool, replaced only when a batch asks for a different parallelism
+        private synchronized ForkJoinPool pool(int parallelism) {
+            if (pool == null || pool.getParallelism() != parallelism) {
+                if (pool != null) pool.shutdown();
+                pool = new ForkJoinPool(parallelism);
+            }
+            return pool;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (pool != null) {
+                pool.shutdown();
+                pool = null;
+            }
+        }
+    }
+
+    /**
+     * Cost of the cheapest path from source to every node, Integer.MAX_VALUE where unreachable
+     */
+    static int[] distances(Graph graph, int source) {
+        int n = graph.nodeCount();
+        int[] dist = new int[n];
+        boolean[] done = new boolean[n];
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        IndexedHeap open = new IndexedHeap(n);
+        dist[source] = 0;
+        open.insertOrDecrease(source, 0);
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            done[current] = true;
+            for (int e = graph.offsets[current]; e < graph.offsets[current + 1]; e++) {
+                int next = graph.targets[e];
+                int tentative = dist[current] + graph.weights[e];
+                if (!done[next] && tentative < dist[next]) {
+                    dist[next] = tentative;
+                    open.insertOrDecrease(next, tentative);
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Landmark distance tables for ALT (A*, landmarks, triangle inequality)
+     * nodes: the landmark node ids
+     * from: from.get(l * n + v) is the cost from landmark l to v
+     * to: to.get(l * n + v) is the cost from v to landmark l
+     * Unreachable entries hold Integer.MAX_VALUE. The tables are int buffers so they
+     * can live on the heap right after preprocessing or be memory-mapped from a file.
+     */
+    static final class Landmarks {
+        static final int MAGIC = 0x414C5431;  // "ALT1"
+
+        final int[] nodes;
+        final int nodeCount;
+        final IntBuffer from;
+        final IntBuffer to;
+
+        Landmarks(int[] nodes, int nodeCount, IntBuffer from, IntBuffer to) {
+            this.nodes = nodes;
+            this.nodeCount = nodeCount;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Pick landmarks by farthest selection: start with the node farthest from node 0,
+         * then repeatedly add the reachable node whose nearest landmark is farthest away.
+         * Runs one forward and one backward Dijkstra per landmark.
+         */
+        static Landmarks select(Graph graph, int count) {
+            int n = graph.nodeCount();
+            Graph reverse = graph.reverse();
+            int[] nodes = new int[count];
+            int[] from = new int[count * n];
+            int[] to = new int[count * n];
+            int[] nearest = distances(graph, 0);  // distance to the closest landmark so far, node 0 seeds the first pick
+            int selected = 0;
+            while (selected < count) {
+                int pick = -1;
+                for (int v = 0; v < n; v++) {
+                    if (nearest[v] != Integer.MAX_VALUE && nearest[v] > 0 && (pick < 0 || nearest[v] > nearest[pick])) pick = v;
+                }
+                if (pick < 0) break;  // every reachable node is already a landmark
+                int[] forward = distances(graph, pick);
+                int[] backward = distances(reverse, pick);
+                System.arraycopy(forward, 0, from, selected * n, n);
+                System.arraycopy(backward, 0, to, selected * n, n);
+                nodes[selected++] = pick;
+                if (selected == 1) nearest = forward.clone();
+                else for (int v = 0; v < n; v++) nearest[v] = Math.min(nearest[v], forward[v]);
+                nearest[pick] = 0;
+            }
+            return new Landmarks(Arrays.copyOf(nodes, selected), n,
+                    IntBuffer.wrap(Arrays.copyOf(from, selected * n)), IntBuffer.wrap(Arrays.copyOf(to, selected * n)));
+        }
+
+        /**
+         * Lower bound on the cost from v to t by the triangle inequality:
+         * d(v,t) >= d(L,t) - d(L,v) and d(v,t) >= d(v,L) - d(t,L) for every landmark L
+         */
+        int lowerBound(int v, int t) {
+            int best = 0;
+            for (int l = 0; l < nodes.length; l++) {
+                int base = l * nodeCount;
+                int fromV = from.get(base + v);
+                int fromT = from.get(base + t);
+                if (fromV != Integer.MAX_VALUE && fromT != Integer.MAX_VALUE) best = Math.max(best, fromT - fromV);
+                int toV = to.get(base + v);
+                int toT = to.get(base + t);
+                if (toV != Integer.MAX_VALUE && toT != Integer.MAX_VALUE) best = Math.max(best, toV - toT);
+            }
+            return best;
+        }
+
+        /**
+         * ALT heuristic towards the nearest of the goals
+         */
+        Heuristic towards(int[] goals) {
+            if (goals.length == 1) {
+                int goal = goals[0];
+                return node -> lowerBound(node, goal);
+            }
+            return node -> {
+                int best = Integer.MAX_VALUE;
+                for (int goal : goals) best = Math.min(best, lowerBound(node, goal));
+                return best;
+            };
+        }
+
+        /**
+         * Write magic, node count, landmark count, landmark ids, then the from and to tables,
+         * all as big-endian ints
+         */
+        void save(Path path) throws IOException {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(nodeCount);
+                out.writeInt(nodes.length);
+                for (int node : nodes) out.writeInt(node);
+                for (int i = 0; i < from.limit(); i++) out.writeInt(from.get(i));
+                for (int i = 0; i < to.limit(); i++) out.writeInt(to.get(i));
+            }
+        }
+
+        /**
+         * Map a file written by save; the distance tables are read straight from the mapping
+         */
+        static Landmarks load(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.limit() < 12 || buffer.getInt(0) != MAGIC) {
+                    throw new IOException(path + " is not a landmark file");
+                }
+                int nodeCount = buffer.getInt(4);
+                int count = buffer.getInt(8);
+                long tableBytes = 4L * count * nodeCount;
+                if (nodeCount < 0 || count < 0 || 12 + 4L * count + 2 * tableBytes != buffer.limit()) {
+                    throw new IOException(path + " has the wrong size for " + count + " landmarks over " + nodeCount + " nodes");
+                }
+                int[] nodes = new int[count];
+                for (int l = 0; l < count; l++) nodes[l] = buffer.getInt(12 + 4 * l);
+                int tables = 12 + 4 * count;
+                IntBuffer from = buffer.slice(tables, (int) tableBytes).asIntBuffer();
+                IntBuffer to = buffer.slice(tables + (int) tableBytes, (int) tableBytes).asIntBuffer();
+                return new Landmarks(nodes, nodeCount, from, to);
+            }
+        }
+    }
+
+    /**
+     * Bidirectional A* from start to goal: a forward search on the graph and a backward
+     * search on its reverse, both steered by landmark bounds. They use the average
+     * potential P(v) = h_goal(v) - h_start(v), keyed in doubled units
+     * (2g + P forwards, 2g - P backwards) so everything stays integral and both sides
+     * see non-negative reduced costs. The search stops once the two smallest keys add
+     * up to twice the best meeting cost found.
+     * With null landmarks it is plain bidirectional Dijkstra.
+     */
+    static final class BidirectionalSearch {
+        final Graph forward;
+        final Graph backward;
+        final Landmarks landmarks;
+        final int[][] g = new int[2][];
+        final int[][] parent = new int[2][];
+        final int[][] seen = new int[2][];
+        final int[][] closed = new int[2][];
+        final IndexedHeap[] open = new IndexedHeap[2];
+        int generation;
+        int cycles;
+        int meeting;
+
+        BidirectionalSearch(Graph graph, Landmarks landmarks) {
+            this.forward = graph;
+            this.backward = graph.reverse();
+            this.landmarks = landmarks;
+            int n = graph.nodeCount();
+            for (int side = 0; side < 2; side++) {
+                g[side] = new int[n];
+                parent[side] = new int[n];
+                seen[side] = new int[n];
+                closed[side] = new int[n];
+                open[side] = new IndexedHeap(n);
+            }
+        }
+
+        private int potential(int v, int start, int goal) {
+            return landmarks == null ? 0 : landmarks.lowerBound(v, goal) - landmarks.lowerBound(start, v);
+        }
+
+        /**
+         * @return cost of the cheapest path, or Integer.MAX_VALUE if goal is unreachable
+         */
+        int run(int start, int goal) {
+            SearchMetrics metrics = METRICS;
+            long started = metrics.start();
+            for (IndexedHeap heap : open) heap.clear();
+            if (++generation == Integer.MAX_VALUE) {
+                for (int side = 0; side < 2; side++) {
+                    Arrays.fill(seen[side], 0);
+                    Arrays.fill(closed[side], 0);
+                }
+                generation = 1;
+            }
+            cycles = 0;
+            meeting = -1;
+            long best = Integer.MAX_VALUE;
+            long pushes = 2;
+            long relaxed = 0;
+
+            int[] roots = {start, goal};
+            for (int side = 0; side < 2; side++) {
+                int root = roots[side];
+                g[side][root] = 0;
+                parent[side][root] = -1;
+                seen[side][root] = generation;
+                int p = potential(root, start, goal);
+                open[side].insertOrDecrease(root, side == 0 ? p : -p);
+            }
+            if (start == goal) {
+                meeting = start;
+                best = 0;
+            }
+
+            while (!open[0].isEmpty() && !open[1].isEmpty()) {
+                int topForward = open[0].keys[open[0].heap[0]];
+                int topBackward = open[1].keys[open[1].heap[0]];
+                if ((long) topForward + topBackward >= 2 * best) break;
+
+                // expand the side with the smaller key
+                int side = topForward <= topBackward ? 0 : 1;
+                int other = 1 - side;
+                Graph graph = side == 0 ? forward : backward;
+                int current = open[side].poll();
+                cycles++;
+                closed[side][current] = generation;
+                if ((cycles & 4095) == 0) metrics.progress("bidirectional", cycles, g[side][current]);
+
+                relaxed += graph.offsets[current + 1] - graph.offsets[current];
+                for (int e = graph.offsets[current]; e < graph.offsets[current + 1]; e++) {
+                    int next = graph.targets[e];
+                    int tentative = g[side][current] + graph.weights[e];
+                    if (closed[side][next] != generation && (seen[side][next] != generation || tentative < g[side][next])) {
+                        seen[side][next] = generation;
+                        g[side][next] = tentative;
+                        parent[side][next] = current;
+                        int p = potential(next, start, goal);
+                        open[side].insertOrDecrease(next, 2 * tentative + (side == 0 ? p : -p));
+                        pushes++;
+                    }
+                    // the two searches meet at next
+                    if (seen[other][next] == generation && (long) g[side][next] + g[other][next] < best) {
+                        best = (long) g[side][next] + g[other][next];
+                        meeting = next;
+                    }
+                }
+            }
+            metrics.add(SearchMetrics.Counter.NODES_EXPANDED, cycles);
+            metrics.add(SearchMetrics.Counter.NEIGHBORS_EVALUATED, relaxed);
+            metrics.add(SearchMetrics.Counter.HEAP_PUSHES, pushes);
+            metrics.stop("bidirectional", started);
+            return meeting < 0 ? Integer.MAX_VALUE : (int) best;
+        }
+
+        /**
+         * Node ids from start to goal through the meeting node of the last search
+         */
+        List<Integer> path() {
+            List<Integer> path = new ArrayList<>();
+            if (meeting < 0) return path;
+            for (int n = meeting; n >= 0; n = parent[0][n]) path.add(n);
+            Collections.reverse(path);
+            for (int n = parent[1][meeting]; n >= 0; n = parent[1][n]) path.add(n);
+            return path;
+        }
+    }
+
+    /**
+     * Combine per-goal heuristics into one for a multi-goal search
+     * h(n) = min over goals of h_goal(n), admissible whenever every h_goal is
+     * @param goalHeuristics goalHeuristics[k][n] estimates the cost from n to goal k
+     */
+    static int[] minOverGoals(int[][] goalHeuristics) {
+        int[] heuristic = Arrays.copyOf(goalHeuristics[0], goalHeuristics[0].length);
+        for (int[] goalHeuristic : goalHeuristics) {
+            for (int n = 0; n < heuristic.length; n++) {
+                heuristic[n] = Math.min(heuristic[n], goalHeuristic[n]);
+            }
+        }
+        return heuristic;
+    }
+
+    /**
+     * Print the path from start to goal by node name
+     */
+    public static void printPath(List<Integer> nodes, String[] names) {
         List<String> path = new ArrayList<>();
-        while (node != null) {
-            path.add(names[node.index]);
-            node = node.parent;
+        for (int node : nodes) {
+            path.add(names[node]);
         }
-        Collections.reverse(path);
         System.out.println("Path: " + String.join("-> ", path));
     }
 
@@ -95,41 +1093,29 @@ public class MyClass {
      * @return cost of the optimal path, or Integer.MAX_VALUE if unreachable
      */
     public static int aStar(int[][] graph, int[] heuristic, int start, int goal, String[] names) {
-        PriorityQueue<Node> openSet = new PriorityQueue<>();
-        boolean[] visited = new boolean[graph.length];
-
-        // Initialize: add start node with g(start)=0, f(start)=h(start)
-        openSet.add(new Node(start, 0, heuristic[start], null));
-        int cycles = 0;
-
-        while (!openSet.isEmpty()) {
-            Node current = openSet.poll();
-            cycles++;
-
-            if (visited[current.index]) continue;
-            visited[current.index] = true;
-
-            // If goal is reached, print stats and return cost
-            if (current.index == goal) {
-                System.out.println("Reached goal: " + names[goal]);
-                System.out.println("Total cost: " + current.costFromStart);
-                System.out.println("Cycles: " + cycles);
-                printPath(current,names);
-                return current.costFromStart;
-            }
-
-            // Explore neighbors using reversed storage: graph[i][current] = cost of current->i
-            for (int i = 0; i < graph.length; i++) {
-                int edgeCost = graph[i][current.index];
-                if (edgeCost > 0 && !visited[i]) {
-                    int g = current.costFromStart + edgeCost;
-                    int f = g + heuristic[i];
-                    openSet.add(new Node(i, g, f, current));
-                }
-            }
+        return aStar(Graph.fromCostMatrix(graph), heuristic, start, goal, names);
+    }
 
+    /**
+     * A* search over a CSR graph, printing the result like the matrix version
+     */
+    public static int aStar(Graph graph, int[] heuristic, int start, int goal, String[] names) {
+        Search search = new Search(graph.nodeCount());
+        int cost = search.run(graph, heuristic, start, goal);
+
+        printResult(search, cost, names);
+        return cost;
+    }
+
+    /**
+     * If a goal was reached, print it with its cost, cycles and path
+     */
+    static void printResult(Search search, int cost, String[] names) {
+        if (cost != Integer.MAX_VALUE) {
+            System.out.println("Reached goal: " + names[search.reachedGoal]);
+            System.out.println("Total cost: " + cost);
+            System.out.println("Cycles: " + search.cycles);
+            printPath(search.path(search.reachedGoal), names);
         }
-        // Return MAX if goal is not reachable
-        return Integer.MAX_VALUE;
     }
 }
@@ -1,4 +1,19 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Perceptron {
     
@@ -11,12 +26,154 @@ public class Perceptron {
     public static double sigmoidDerivative(double x) {
         return x * (1 - x);
     }
+
+    // sigmoid sampled on [-SIGMOID_RANGE, SIGMOID_RANGE] for fastSigmoid
+    static final double SIGMOID_RANGE = 16.0;
+    static final int SIGMOID_STEPS = 8192;
+    static final double[] SIGMOID_TABLE = new double[SIGMOID_STEPS + 1];
+    static {
+        for (int i = 0; i <= SIGMOID_STEPS; i++) {
+            SIGMOID_TABLE[i] = sigmoid(-SIGMOID_RANGE + 2 * SIGMOID_RANGE * i / SIGMOID_STEPS);
+        }
+    }
+
+    // table-based sigmoid with linear interpolation, absolute error below 1e-6; meant for inference
+    public static double fastSigmoid(double x) {
+        if (x <= -SIGMOID_RANGE) return SIGMOID_TABLE[0];
+        if (x >= SIGMOID_RANGE) return SIGMOID_TABLE[SIGMOID_STEPS];
+        double position = (x + SIGMOID_RANGE) * (SIGMOID_STEPS / (2 * SIGMOID_RANGE));
+        int i = (int) position;
+        double fraction = position - i;
+        return SIGMOID_TABLE[i] + fraction * (SIGMOID_TABLE[i + 1] - SIGMOID_TABLE[i]);
+    }
+
+    // early stopping settings: hold out the last validationFraction of the rows, and stop once the
+    // validation error (training error without a split) has not improved by more than tolerance
+    // for patience epochs in a row, restoring the best weights seen
+    public static final class EarlyStopping {
+        final double validationFraction;
+        final int patience;
+        final double tolerance;
+
+        public EarlyStopping(double validationFraction, int patience, double tolerance) {
+            if (validationFraction < 0 || validationFraction >= 1) {
+                throw new IllegalArgumentException("Validation fraction must be in [0, 1): " + validationFraction);
+            }
+            if (patience < 1) throw new IllegalArgumentException("Patience must be at least 1: " + patience);
+            this.validationFraction = validationFraction;
+            this.patience = patience;
+            this.tolerance = tolerance;
+        }
+
+        // rows trained on; the rest, at the end of the data, are the validation split
+        int trainingRows(int samples) {
+            int rows = samples - (int) Math.round(samples * validationFraction);
+            if (rows < 1) throw new IllegalArgumentException("No training rows left after the validation split");
+            return rows;
+        }
+    }
+
+    // what one epoch of training did; validationError is NaN without a validation split
+    public static final class EpochMetrics {
+        public final int epoch;
+        public final double trainingError;
+        public final double validationError;
+        public final double samplesPerSecond;
+        public final long epochNanos;
+        public final long elapsedNanos;  // wall time since training started
+        public final boolean improved;  // new best error, whose weights early stopping will restore
+        public final boolean stopping;  // early stopping ends training after this epoch
+
+        EpochMetrics(int epoch, double trainingError, double validationError, double samplesPerSecond,
+                     long epochNanos, long elapsedNanos, boolean improved, boolean stopping) {
+            this.epoch = epoch;
+            this.trainingError = trainingError;
+            this.validationError = validationError;
+            this.samplesPerSecond = samplesPerSecond;
+            this.epochNanos = epochNanos;
+            this.elapsedNanos = elapsedNanos;
+            this.improved = improved;
+            this.stopping = stopping;
+        }
+    }
+
+    public interface EpochListener {
+        void onEpoch(EpochMetrics metrics);
+
+        // print error at epoch 0, every interval epochs and when stopping early
+        static EpochListener every(int interval) {
+            return m -> {
+                if ((m.epoch + 1) % interval == 0 || m.epoch == 0 || m.stopping) {
+                    System.out.printf("Epoch %4d: Average Training Error = %.6f", m.epoch, m.trainingError);
+                    if (!Double.isNaN(m.validationError)) System.out.printf(", Validation Error = %.6f", m.validationError);
+                    System.out.printf(m.stopping ? " (stopping early)%n" : "%n");
+                }
+            };
+        }
+    }
+
+    // per-run bookkeeping shared by the trainers: epoch timing, the best error so far and patience
+    static final class TrainingMonitor {
+        private final EarlyStopping stopping;
+        private final EpochListener listener;
+        private final int trainingRows;
+        private final long start = System.nanoTime();
+        private long epochStart = start;
+        private double best = Double.POSITIVE_INFINITY;
+        private boolean hasBest;  // false while every error so far was NaN, i.e. training diverged
+        private int stale;
+        private boolean improved;
+
+        TrainingMonitor(EarlyStopping stopping, EpochListener listener, int trainingRows) {
+            this.stopping = stopping;
+            this.listener = listener;
+            this.trainingRows = trainingRows;
+        }
+
+        // records an epoch and reports it; returns true when training should stop
+        boolean endEpoch(int epoch, double trainingError, double validationError) {
+            long now = System.nanoTime();
+            long epochNanos = now - epochStart;
+            epochStart = now;
+            boolean stop = false;
+            improved = false;
+            if (stopping != null) {
+                double error = Double.isNaN(validationError) ? trainingError : validationError;
+                if (error < best - stopping.tolerance) {
+                    best = error;
+                    hasBest = true;
+                    stale = 0;
+                    improved = true;
+                } else {
+                    stop = ++stale >= stopping.patience;
+                }
+            }
+            if (listener != null) {
+                double samplesPerSecond = trainingRows / Math.max(epochNanos / 1e9, 1e-9);
+                listener.onEpoch(new EpochMetrics(epoch, trainingError, validationError, samplesPerSecond,
+                        epochNanos, now - start, improved, stop));
+            }
+            return stop;
+        }
+
+        // whether the last epoch set a new best, so its weights should be kept
+        boolean improved() {
+            return improved;
+        }
+
+        // whether best weights were recorded for the trainer to restore after training
+        boolean restoresBest() {
+            return stopping != null && hasBest;
+        }
+    }
     
     // class for define a simple perceptron including the code for prediction and training
     public static class simplePerceptron {
         private double[] weights;
         private double bias;
         private double learningRate = 0.1;
+        private EarlyStopping earlyStopping;
+        private EpochListener listener = EpochListener.every(100);
         
         public simplePerceptron() {
             // initialize weights and bias randomly
@@ -26,6 +183,16 @@ public class Perceptron {
             }
             bias = Math.random() * 2 - 1;
         }
+
+        // null trains for the full epoch count on every row
+        public void setEarlyStopping(EarlyStopping earlyStopping) {
+            this.earlyStopping = earlyStopping;
+        }
+
+        // null reports nothing
+        public void setEpochListener(EpochListener listener) {
+            this.listener = listener;
+        }
         
         public double predict(double[] inputs) {
             // calculate weighted sum
@@ -38,11 +205,17 @@ public class Perceptron {
             return sigmoid(weightedSum);
         }
         
+        // with early stopping set, the validation rows are held out and training may end before epochs
         public void train(double[][] trainingInputs, double[][] trainingOutputs, int epochs) {
+            int samples = trainingInputs.length;
+            int rows = earlyStopping == null ? samples : earlyStopping.trainingRows(samples);
+            TrainingMonitor monitor = new TrainingMonitor(earlyStopping, listener, rows);
+            double[] bestWeights = new double[weights.length];
+            double bestBias = bias;
             for (int epoch = 0; epoch < epochs; epoch++) {
                 double epochError = 0.0; // accumulate error for this epoch
 
-                for (int i = 0; i < trainingInputs.length; i++) {
+                for (int i = 0; i < rows; i++) {
                     // forward propogation
                     double prediction = predict(trainingInputs[i]);
                     double error = trainingOutputs[i][0] - prediction;  // y-prediction
@@ -59,14 +232,29 @@ public class Perceptron {
                 }
 
                 // calculate average error for this epoch
-                double avgEpochError = epochError / trainingInputs.length;
-                
-                // print error at specific epochs
-                if ((epoch + 1) % 100 == 0 || epoch == 0) {
-                    System.out.printf("Epoch %4d: Average Training Error = %.6f%n", 
-                                    epoch, avgEpochError);
+                double avgEpochError = epochError / rows;
+                boolean stop = monitor.endEpoch(epoch, avgEpochError, validationError(trainingInputs, trainingOutputs, rows, samples));
+                if (monitor.improved()) {
+                    System.arraycopy(weights, 0, bestWeights, 0, weights.length);
+                    bestBias = bias;
                 }
+                if (stop) break;
             }
+            if (monitor.restoresBest()) {
+                System.arraycopy(bestWeights, 0, weights, 0, weights.length);
+                bias = bestBias;
+            }
+        }
+
+        // average error on the validation rows [from, to), NaN when there are none
+        private double validationError(double[][] inputs, double[][] outputs, int from, int to) {
+            if (from == to) return Double.NaN;
+            double error = 0.0;
+            for (int i = from; i < to; i++) {
+                double e = outputs[i][0] - predict(inputs[i]);
+                error += 0.5 * e * e;
+            }
+            return error / (to - from);
         }
         
         public double[] getWeights() {
@@ -78,6 +266,536 @@ public class Perceptron {
         }
     }
     
+    // class for a perceptron of any input size, trained with mini-batch gradient descent
+    // inputs are stored row-major in one double[]: feature j of sample i is at inputs[i * inputSize + j]
+    public static class batchPerceptron {
+        private final int inputSize;
+        private final double[] weights;
+        private double bias;
+        private double learningRate = 0.1;
+        private int batchSize;
+        private EarlyStopping earlyStopping;
+        private EpochListener listener = EpochListener.every(100);
+
+        // scratch buffers reused by every batch
+        private final double[] gradient;
+        private double[] deltas;
+
+        // best weights seen, kept for early stopping
+        private final double[] bestWeights;
+        private double bestBias;
+
+        public batchPerceptron(int inputSize, int batchSize, long seed) {
+            // initialize weights and bias randomly from the seed
+            Random random = new Random(seed);
+            this.inputSize = inputSize;
+            this.batchSize = batchSize;
+            weights = new double[inputSize];
+            for (int i = 0; i < inputSize; i++) {
+                weights[i] = random.nextDouble() * 2 - 1; // random values between -1 and 1
+            }
+            bias = random.nextDouble() * 2 - 1;
+            gradient = new double[inputSize];
+            deltas = new double[batchSize];
+            bestWeights = new double[inputSize];
+        }
+
+        public void setLearningRate(double learningRate) {
+            this.learningRate = learningRate;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            deltas = new double[batchSize];
+        }
+
+        // null trains for the full epoch count on every row
+        public void setEarlyStopping(EarlyStopping earlyStopping) {
+            this.earlyStopping = earlyStopping;
+        }
+
+        // null reports nothing
+        public void setEpochListener(EpochListener listener) {
+            this.listener = listener;
+        }
+
+        // weighted sum of the sample starting at inputs[offset], four partial sums so the loop pipelines
+        private double weightedSum(double[] inputs, int offset) {
+            double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            int j = 0;
+            for (; j + 3 < inputSize; j += 4) {
+                s0 += weights[j] * inputs[offset + j];
+                s1 += weights[j + 1] * inputs[offset + j + 1];
+                s2 += weights[j + 2] * inputs[offset + j + 2];
+                s3 += weights[j + 3] * inputs[offset + j + 3];
+            }
+            for (; j < inputSize; j++) {
+                s0 += weights[j] * inputs[offset + j];
+            }
+            return bias + (s0 + s1) + (s2 + s3);
+        }
+
+        public double predict(double[] inputs, int offset) {
+            return sigmoid(weightedSum(inputs, offset));
+        }
+
+        public double predict(double[] inputs) {
+            return predict(inputs, 0);
+        }
+
+        // predictions for the first samples rows of a row-major input block
+        public void predict(double[] inputs, int samples, double[] out) {
+            for (int i = 0; i < samples; i++) {
+                out[i] = predict(inputs, i * inputSize);
+            }
+        }
+
+        // one mini-batch over samples [from, to), returns its summed squared error
+        double trainBatch(double[] inputs, double[] outputs, int from, int to) {
+            double batchError = 0.0;
+            int size = to - from;
+
+            // forward pass for the whole batch
+            for (int i = 0; i < size; i++) {
+                double prediction = predict(inputs, (from + i) * inputSize);
+                double error = outputs[from + i] - prediction;  // y-prediction
+                deltas[i] = error * sigmoidDerivative(prediction);
+                batchError += 0.5 * error * error;
+            }
+
+            // batch gradient: element-wise multiply-add over contiguous rows, which the JIT vectorizes
+            Arrays.fill(gradient, 0.0);
+            double biasGradient = 0.0;
+            for (int i = 0; i < size; i++) {
+                double delta = deltas[i];
+                int offset = (from + i) * inputSize;
+                for (int j = 0; j < inputSize; j++) {
+                    gradient[j] += delta * inputs[offset + j];
+                }
+                biasGradient += delta;
+            }
+
+            // apply the mean gradient, so a batch size of 1 is plain per-sample SGD
+            double step = learningRate / size;
+            for (int j = 0; j < inputSize; j++) {
+                weights[j] += step * gradient[j];
+            }
+            bias += step * biasGradient;
+            return batchError;
+        }
+
+        // train on samples rows of inputs with one target per row; returns the last epoch's average error
+        // with early stopping set, the validation rows are held out and training may end before epochs
+        public double train(double[] inputs, double[] outputs, int samples, int epochs) {
+            int rows = trainingRows(samples);
+            TrainingMonitor monitor = new TrainingMonitor(earlyStopping, listener, rows);
+            double avgEpochError = 0.0;
+            for (int epoch = 0; epoch < epochs; epoch++) {
+                double epochError = 0.0; // accumulate error for this epoch
+                for (int from = 0; from < rows; from += batchSize) {
+                    epochError += trainBatch(inputs, outputs, from, Math.min(rows, from + batchSize));
+                }
+
+                // calculate average error for this epoch
+                avgEpochError = epochError / rows;
+                if (endEpoch(monitor, epoch, avgEpochError, inputs, outputs, rows, samples)) break;
+            }
+            restoreBest(monitor);
+            return avgEpochError;
+        }
+
+        private int trainingRows(int samples) {
+            return earlyStopping == null ? samples : earlyStopping.trainingRows(samples);
+        }
+
+        // average error on the validation rows [from, to), NaN when there are none
+        private double validationError(double[] inputs, double[] outputs, int from, int to) {
+            if (from == to) return Double.NaN;
+            double error = 0.0;
+            for (int i = from; i < to; i++) {
+                double e = outputs[i] - predict(inputs, i * inputSize);
+                error += 0.5 * e * e;
+            }
+            return error / (to - from);
+        }
+
+        // reports the epoch and keeps its weights if they are the best so far; returns true to stop
+        private boolean endEpoch(TrainingMonitor monitor, int epoch, double avgEpochError,
+                                 double[] inputs, double[] outputs, int rows, int samples) {
+            boolean stop = monitor.endEpoch(epoch, avgEpochError, validationError(inputs, outputs, rows, samples));
+            if (monitor.improved()) {
+                System.arraycopy(weights, 0, bestWeights, 0, inputSize);
+                bestBias = bias;
+            }
+            return stop;
+        }
+
+        private void restoreBest(TrainingMonitor monitor) {
+            if (monitor.restoresBest()) {
+                System.arraycopy(bestWeights, 0, weights, 0, inputSize);
+                bias = bestBias;
+            }
+        }
+
+        /**
+         * Synchronous data-parallel training. The samples are split into one contiguous
+         * shard per thread; at every step each worker computes the gradient of its next
+         * batchSize / threads rows into its own buffer, then the last worker to reach the
+         * barrier adds the buffers up in worker order and applies the mean gradient.
+         * Results depend only on the seed and the thread count, not on scheduling.
+         */
+        public double trainParallel(double[] inputs, double[] outputs, int samples, int epochs, int threads) {
+            int rows = trainingRows(samples);
+            TrainingMonitor monitor = new TrainingMonitor(earlyStopping, listener, rows);
+            int localBatch = Math.max(1, batchSize / threads);
+            int[] shardStart = new int[threads + 1];
+            for (int w = 0; w <= threads; w++) shardStart[w] = (int) ((long) rows * w / threads);
+            int maxShard = 0;
+            for (int w = 0; w < threads; w++) maxShard = Math.max(maxShard, shardStart[w + 1] - shardStart[w]);
+            int steps = (maxShard + localBatch - 1) / localBatch;
+
+            // per-worker gradient, bias gradient, row count and error, indexed by worker
+            double[][] gradients = new double[threads][inputSize];
+            double[] biasGradients = new double[threads];
+            int[] rowCounts = new int[threads];
+            double[] errors = new double[threads];
+            // set when a worker throws; the step is then dropped and the epoch winds down
+            AtomicBoolean failed = new AtomicBoolean();
+            CyclicBarrier barrier = new CyclicBarrier(threads, () -> {
+                // reduce in worker order and apply the step
+                int stepRows = 0;
+                double biasGradient = 0.0;
+                Arrays.fill(gradient, 0.0);
+                for (int w = 0; w < threads; w++) {
+                    stepRows += rowCounts[w];
+                    biasGradient += biasGradients[w];
+                    for (int j = 0; j < inputSize; j++) gradient[j] += gradients[w][j];
+                }
+                if (stepRows == 0 || failed.get()) return;
+                double step = learningRate / stepRows;
+                for (int j = 0; j < inputSize; j++) weights[j] += step * gradient[j];
+                bias += step * biasGradient;
+            });
+
+            double avgEpochError = 0.0;
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                for (int epoch = 0; epoch < epochs; epoch++) {
+                    Arrays.fill(errors, 0.0);
+                    List<Callable<Void>> workers = new ArrayList<>();
+                    for (int w = 0; w < threads; w++) {
+                        int worker = w;
+                        workers.add(() -> {
+                            double[] local = gradients[worker];
+                            RuntimeException failure = null;
+                            for (int s = 0; s < steps; s++) {
+                                int from = Math.min(shardStart[worker] + s * localBatch, shardStart[worker + 1]);
+                                int to = Math.min(from + localBatch, shardStart[worker + 1]);
+                                Arrays.fill(local, 0.0);
+                                biasGradients[worker] = 0.0;
+                                rowCounts[worker] = 0;
+                                // after a failure every worker skips the work but still reaches the
+                                // barrier once per step, so no thread is left waiting on it
+                                if (!failed.get()) {
+                                    try {
+                                        double biasGradient = 0.0;
+                                        double stepError = 0.0;
+                                        for (int i = from; i < to; i++) {
+                                            int offset = i * inputSize;
+                                            double prediction = predict(inputs, offset);
+                                            double error = outputs[i] - prediction;
+                                            double delta = error * sigmoidDerivative(prediction);
+                                            for (int j = 0; j < inputSize; j++) local[j] += delta * inputs[offset + j];
+                                            biasGradient += delta;
+                                            stepError += 0.5 * error * error;
+                                        }
+                                        // one write per step to the shared arrays, not one per sample
+                                        errors[worker] += stepError;
+                                        biasGradients[worker] = biasGradient;
+                                        rowCounts[worker] = to - from;
+                                    } catch (RuntimeException e) {
+                                        failure = e;
+                                        failed.set(true);
+                                    }
+                                }
+                                barrier.await();
+                            }
+                            if (failure != null) throw failure;
+                            return null;
+                        });
+                    }
+                    for (Future<Void> done : pool.invokeAll(workers)) done.get();
+
+                    double epochError = 0.0;
+                    for (double error : errors) epochError += error;
+                    avgEpochError = epochError / rows;
+                    if (endEpoch(monitor, epoch, avgEpochError, inputs, outputs, rows, samples)) break;
+                }
+                restoreBest(monitor);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Training interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Training worker failed", e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+            return avgEpochError;
+        }
+
+        /**
+         * Hogwild training: every thread runs per-sample SGD over its own shard, in an order
+         * shuffled from the seed, writing to the shared weights without any locking. Only
+         * the nonzero features of a sample are touched, so on sparse inputs threads rarely
+         * collide. Runs are reproducible only with one thread, since with several the
+         * interleaving of updates is up to the scheduler.
+         */
+        public double trainHogwild(double[] inputs, double[] outputs, int samples, int epochs, int threads, long seed) {
+            int rows = trainingRows(samples);
+            TrainingMonitor monitor = new TrainingMonitor(earlyStopping, listener, rows);
+            int[] shardStart = new int[threads + 1];
+            for (int w = 0; w <= threads; w++) shardStart[w] = (int) ((long) rows * w / threads);
+            SplittableRandom root = new SplittableRandom(seed);
+            SplittableRandom[] randoms = new SplittableRandom[threads];
+            for (int w = 0; w < threads; w++) randoms[w] = root.split();
+
+            double avgEpochError = 0.0;
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                for (int epoch = 0; epoch < epochs; epoch++) {
+                    List<Callable<Double>> workers = new ArrayList<>();
+                    for (int w = 0; w < threads; w++) {
+                        int worker = w;
+                        workers.add(() -> {
+                            int from = shardStart[worker];
+                            int size = shardStart[worker + 1] - from;
+                            int[] order = new int[size];
+                            for (int i = 0; i < size; i++) order[i] = from + i;
+                            for (int i = size - 1; i > 0; i--) {  // Fisher-Yates shuffle
+                                int k = randoms[worker].nextInt(i + 1);
+                                int swap = order[i];
+                                order[i] = order[k];
+                                order[k] = swap;
+                            }
+                            double error = 0.0;
+                            for (int i : order) {
+                                int offset = i * inputSize;
+                                double prediction = predict(inputs, offset);
+                                double e = outputs[i] - prediction;
+                                double step = e * sigmoidDerivative(prediction) * learningRate;
+                                for (int j = 0; j < inputSize; j++) {
+                                    double x = inputs[offset + j];
+                                    if (x != 0.0) weights[j] += step * x;
+                                }
+                                bias += step;
+                                error += 0.5 * e * e;
+                            }
+                            return error;
+                        });
+                    }
+                    double epochError = 0.0;
+                    for (Future<Double> error : pool.invokeAll(workers)) epochError += error.get();
+                    avgEpochError = epochError / rows;
+                    if (endEpoch(monitor, epoch, avgEpochError, inputs, outputs, rows, samples)) break;
+                }
+                restoreBest(monitor);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Training interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Training worker failed", e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+            return avgEpochError;
+        }
+
+        public double[] getWeights() {
+            return weights;
+        }
+
+        public double getBias() {
+            return bias;
+        }
+    }
+
+    // class for a fully connected network of sigmoid layers, trained by backpropagation with per-sample SGD
+    // all weights, biases, activations and deltas live in flat arrays allocated by the constructor,
+    // so forward and backward passes allocate nothing
+    public static class multiLayerPerceptron {
+        private final int[] sizes;  // neurons per layer, input layer first
+        private final int[] weightStart;  // layer l's weights: sizes[l + 1] rows of sizes[l], row-major
+        private final int[] neuronStart;  // first index of layer l in activations
+        private final double[] weights;
+        private final double[] biases;  // indexed like activations, unused for the input layer
+        private final double[] activations;
+        private final double[] deltas;  // indexed like activations
+        private double learningRate = 0.5;
+        private boolean fastInference = false;
+        private EarlyStopping earlyStopping;
+        private EpochListener listener = EpochListener.every(1000);
+        private final double[] bestWeights;
+        private final double[] bestBiases;
+
+        public multiLayerPerceptron(int[] sizes, long seed) {
+            this.sizes = sizes.clone();
+            int layers = sizes.length;
+            weightStart = new int[layers];
+            neuronStart = new int[layers + 1];
+            for (int l = 0; l < layers; l++) {
+                neuronStart[l + 1] = neuronStart[l] + sizes[l];
+                if (l + 1 < layers) weightStart[l + 1] = weightStart[l] + sizes[l] * sizes[l + 1];
+            }
+            weights = new double[weightStart[layers - 1]];
+            biases = new double[neuronStart[layers]];
+            activations = new double[neuronStart[layers]];
+            deltas = new double[neuronStart[layers]];
+            bestWeights = new double[weights.length];
+            bestBiases = new double[biases.length];
+
+            // initialize weights and biases randomly from the seed
+            Random random = new Random(seed);
+            for (int i = 0; i < weights.length; i++) weights[i] = random.nextDouble() * 2 - 1;
+            for (int i = sizes[0]; i < biases.length; i++) biases[i] = random.nextDouble() * 2 - 1;
+        }
+
+        public void setLearningRate(double learningRate) {
+            this.learningRate = learningRate;
+        }
+
+        // use fastSigmoid instead of sigmoid in predict; training always uses the exact function
+        public void setFastInference(boolean fastInference) {
+            this.fastInference = fastInference;
+        }
+
+        // null trains for the full epoch count on every row
+        public void setEarlyStopping(EarlyStopping earlyStopping) {
+            this.earlyStopping = earlyStopping;
+        }
+
+        // null reports nothing
+        public void setEpochListener(EpochListener listener) {
+            this.listener = listener;
+        }
+
+        // forward propagation of the sample at inputs[offset], leaving every layer's output in activations
+        private void forward(double[] inputs, int offset, boolean fast) {
+            System.arraycopy(inputs, offset, activations, 0, sizes[0]);
+            for (int l = 0; l + 1 < sizes.length; l++) {
+                int in = neuronStart[l];
+                int out = neuronStart[l + 1];
+                int fanIn = sizes[l];
+                for (int i = 0; i < sizes[l + 1]; i++) {
+                    int row = weightStart[l] + i * fanIn;
+                    double weightedSum = biases[out + i];
+                    for (int j = 0; j < fanIn; j++) {
+                        weightedSum += weights[row + j] * activations[in + j];
+                    }
+                    activations[out + i] = fast ? fastSigmoid(weightedSum) : sigmoid(weightedSum);
+                }
+            }
+        }
+
+        // backward pass for targets at outputs[offset], updating weights and biases in place; returns the squared error
+        private double backward(double[] outputs, int offset) {
+            int last = sizes.length - 1;
+            double error = 0.0;
+            for (int i = 0; i < sizes[last]; i++) {
+                int n = neuronStart[last] + i;
+                double diff = outputs[offset + i] - activations[n];  // y-prediction
+                deltas[n] = diff * sigmoidDerivative(activations[n]);
+                error += 0.5 * diff * diff;
+            }
+
+            // propagate deltas down through the hidden layers
+            for (int l = last - 1; l >= 1; l--) {
+                int fanIn = sizes[l];
+                for (int j = 0; j < sizes[l]; j++) {
+                    double sum = 0.0;
+                    for (int i = 0; i < sizes[l + 1]; i++) {
+                        sum += weights[weightStart[l] + i * fanIn + j] * deltas[neuronStart[l + 1] + i];
+                    }
+                    deltas[neuronStart[l] + j] = sum * sigmoidDerivative(activations[neuronStart[l] + j]);
+                }
+            }
+
+            // update weights and biases of every layer
+            for (int l = 0; l < last; l++) {
+                int in = neuronStart[l];
+                int fanIn = sizes[l];
+                for (int i = 0; i < sizes[l + 1]; i++) {
+                    int n = neuronStart[l + 1] + i;
+                    double step = deltas[n] * learningRate;
+                    int row = weightStart[l] + i * fanIn;
+                    for (int j = 0; j < fanIn; j++) {
+                        weights[row + j] += step * activations[in + j];
+                    }
+                    biases[n] += step;
+                }
+            }
+            return error;
+        }
+
+        // network output for the sample at inputs[offset], written to out
+        public void predict(double[] inputs, int offset, double[] out) {
+            forward(inputs, offset, fastInference);
+            System.arraycopy(activations, neuronStart[sizes.length - 1], out, 0, sizes[sizes.length - 1]);
+        }
+
+        public double[] predict(double[] inputs) {
+            double[] out = new double[sizes[sizes.length - 1]];
+            predict(inputs, 0, out);
+            return out;
+        }
+
+        // train on row-major inputs and outputs (samples rows each); returns the last epoch's average error
+        // with early stopping set, the validation rows are held out and training may end before epochs
+        public double train(double[] inputs, double[] outputs, int samples, int epochs) {
+            int inputSize = sizes[0];
+            int outputSize = sizes[sizes.length - 1];
+            int rows = earlyStopping == null ? samples : earlyStopping.trainingRows(samples);
+            TrainingMonitor monitor = new TrainingMonitor(earlyStopping, listener, rows);
+            double avgEpochError = 0.0;
+            for (int epoch = 0; epoch < epochs; epoch++) {
+                double epochError = 0.0; // accumulate error for this epoch
+                for (int i = 0; i < rows; i++) {
+                    forward(inputs, i * inputSize, false);
+                    epochError += backward(outputs, i * outputSize);
+                }
+
+                // calculate average error for this epoch
+                avgEpochError = epochError / rows;
+                boolean stop = monitor.endEpoch(epoch, avgEpochError, validationError(inputs, outputs, rows, samples));
+                if (monitor.improved()) {
+                    System.arraycopy(weights, 0, bestWeights, 0, weights.length);
+                    System.arraycopy(biases, 0, bestBiases, 0, biases.length);
+                }
+                if (stop) break;
+            }
+            if (monitor.restoresBest()) {
+                System.arraycopy(bestWeights, 0, weights, 0, weights.length);
+                System.arraycopy(bestBiases, 0, biases, 0, biases.length);
+            }
+            return avgEpochError;
+        }
+
+        // average error on the validation rows [from, to), NaN when there are none
+        private double validationError(double[] inputs, double[] outputs, int from, int to) {
+            if (from == to) return Double.NaN;
+            int last = neuronStart[sizes.length - 1];
+            int outputSize = sizes[sizes.length - 1];
+            double error = 0.0;
+            for (int r = from; r < to; r++) {
+                forward(inputs, r * sizes[0], false);
+                for (int i = 0; i < outputSize; i++) {
+                    double e = outputs[r * outputSize + i] - activations[last + i];
+                    error += 0.5 * e * e;
+                }
+            }
+            return error / (to - from);
+        }
+    }
+
     public static class Train_Test {
         public static void trainAndTest() {
             // define training data
@@ -100,7 +818,8 @@ public class Perceptron {
             System.out.println("Initial weights: " + Arrays.toString(perceptron.getWeights()));
             System.out.println("Initial bias: " + perceptron.getBias());
             
-            // train for 1000 epochs
+            // up to 1000 epochs, ending early once the error stops improving
+            perceptron.setEarlyStopping(new EarlyStopping(0, 20, 1e-4));
             perceptron.train(inputs, outputs, 1000);
             
             System.out.println("\nAfter training:");
@@ -115,9 +834,183 @@ public class Perceptron {
             System.out.println("Raw output: " + prediction);
             System.out.println("Classification: " + (prediction > 0.5 ? "Real" : "Fake"));
         }
+
+        // XOR cannot be learned by a single neuron but can by one hidden layer
+        public static void trainAndTestXor() {
+            double[] inputs = {0, 0, 0, 1, 1, 0, 1, 1};
+            double[] outputs = {0, 1, 1, 0};
+
+            // up to 10000 epochs, ending early once the error stops improving
+            multiLayerPerceptron network = new multiLayerPerceptron(new int[]{2, 4, 1}, 7);
+            network.setEarlyStopping(new EarlyStopping(0, 200, 1e-5));
+            network.train(inputs, outputs, 4, 10000);
+
+            System.out.println("\nXOR after training:");
+            double[] out = new double[1];
+            for (int i = 0; i < 4; i++) {
+                network.setFastInference(false);
+                network.predict(inputs, i * 2, out);
+                double exact = out[0];
+                network.setFastInference(true);
+                network.predict(inputs, i * 2, out);
+                System.out.printf("[%.0f, %.0f] -> %.6f (table sigmoid %.6f)%n", inputs[i * 2], inputs[i * 2 + 1], exact, out[0]);
+            }
+        }
     }
     
-    public static void main(String[] args) {
+    // random linearly separable data: label 1 when the sample lies on the positive side of a random hyperplane
+    static double[] separableInputs(int samples, int features, long seed, double[] outputs) {
+        Random random = new Random(seed);
+        double[] plane = new double[features];
+        for (int j = 0; j < features; j++) plane[j] = random.nextGaussian();
+        double[] inputs = new double[samples * features];
+        for (int i = 0; i < samples; i++) {
+            double side = 0.0;
+            for (int j = 0; j < features; j++) {
+                inputs[i * features + j] = random.nextDouble() * 2 - 1;
+                side += plane[j] * inputs[i * features + j];
+            }
+            outputs[i] = side > 0 ? 1 : 0;
+        }
+        return inputs;
+    }
+
+    // row-major samples loaded from a CSV file: features inputs per row, one target each
+    static final class Samples {
+        final double[] inputs;
+        final double[] outputs;
+        final int samples;
+        final int features;
+
+        Samples(double[] inputs, double[] outputs, int samples, int features) {
+            this.inputs = inputs;
+            this.outputs = outputs;
+            this.samples = samples;
+            this.features = features;
+        }
+    }
+
+    // load a CSV with a header line and the target in the last column, as written by Workloads separable
+    static Samples loadCsv(Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String header = reader.readLine();
+            if (header == null) throw new IOException(path + " is empty");
+            int features = header.split(",").length - 1;
+            double[] inputs = new double[1024 * features];
+            double[] outputs = new double[1024];
+            int samples = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.isEmpty()) continue;
+                if (samples == outputs.length) {
+                    outputs = Arrays.copyOf(outputs, samples * 2);
+                    inputs = Arrays.copyOf(inputs, samples * 2 * features);
+                }
+                int start = 0;
+                for (int j = 0; j <= features; j++) {
+                    int end = j < features ? line.indexOf(',', start) : line.length();
+                    if (end < 0 || (j == features && line.indexOf(',', start) >= 0)) {
+                        throw new IOException("Expected " + (features + 1) + " values in row " + (samples + 1) + " of " + path);
+                    }
+                    double value = Double.parseDouble(line.substring(start, end));
+                    if (j < features) inputs[samples * features + j] = value;
+                    else outputs[samples] = value;
+                    start = end + 1;
+                }
+                samples++;
+            }
+            return new Samples(inputs, outputs, samples, features);
+        }
+    }
+
+    // fraction of samples whose thresholded prediction matches the target
+    static double accuracy(batchPerceptron perceptron, double[] inputs, double[] outputs, int samples) {
+        double[] predictions = new double[samples];
+        perceptron.predict(inputs, samples, predictions);
+        int correct = 0;
+        for (int i = 0; i < samples; i++) {
+            if ((predictions[i] > 0.5 ? 1 : 0) == outputs[i]) correct++;
+        }
+        return (double) correct / samples;
+    }
+
+    // positional number argument, or the default when it is missing or another option
+    static int numberArg(String[] args, int index, int defaultValue) {
+        return index < args.length && args[index].matches("\\d+") ? Integer.parseInt(args[index]) : defaultValue;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 1 && args[0].equals("--csv")) {
+            // --csv <file> [epochs] [batch size]: train on a file from Workloads separable, holding out 10% to stop early
+            long begin = System.nanoTime();
+            Samples data = loadCsv(Path.of(args[1]));
+            System.out.printf("Loaded %d samples x %d features in %.1f ms%n",
+                    data.samples, data.features, (System.nanoTime() - begin) / 1e6);
+            batchPerceptron perceptron = new batchPerceptron(data.features, numberArg(args, 3, 64), 2);
+            perceptron.setEarlyStopping(new EarlyStopping(0.1, 5, 1e-5));
+            perceptron.setEpochListener(EpochListener.every(10));
+            perceptron.train(data.inputs, data.outputs, data.samples, numberArg(args, 2, 100));
+            System.out.printf("Accuracy: %.4f%n", accuracy(perceptron, data.inputs, data.outputs, data.samples));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--batch")) {
+            // --batch [samples] [features] [batch size] [epochs]: mini-batch training on synthetic data
+            int samples = numberArg(args, 1, 100_000);
+            int features = numberArg(args, 2, 32);
+            int batchSize = numberArg(args, 3, 64);
+            int epochs = numberArg(args, 4, 10);
+            double[] outputs = new double[samples];
+            double[] inputs = separableInputs(samples, features, 1, outputs);
+
+            batchPerceptron perceptron = new batchPerceptron(features, batchSize, 2);
+
+            // --batch ... --early-stop [patience]: hold out 10% of the rows and stop once their error stalls
+            EarlyStopping earlyStopping = null;
+            int[] epochsRun = {epochs};
+            int stopAt = Arrays.asList(args).indexOf("--early-stop");
+            if (stopAt >= 0) {
+                earlyStopping = new EarlyStopping(0.1, numberArg(args, stopAt + 1, 5), 1e-5);
+                perceptron.setEarlyStopping(earlyStopping);
+                perceptron.setEpochListener(m -> {
+                    epochsRun[0] = m.epoch + 1;
+                    System.out.printf("Epoch %4d: training %.6f, validation %.6f, %.0f samples/s, %.1f ms%s%n",
+                            m.epoch, m.trainingError, m.validationError, m.samplesPerSecond,
+                            m.elapsedNanos / 1e6, m.stopping ? ", stopping" : m.improved ? ", best" : "");
+                });
+            }
+            long start = System.nanoTime();
+            perceptron.train(inputs, outputs, samples, epochs);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Trained %d samples x %d features, batch %d, %d epochs in %.1f ms (%.0f samples/s)%n",
+                    samples, features, batchSize, epochsRun[0], seconds * 1e3, (double) samples * epochsRun[0] / seconds);
+            System.out.printf("Training accuracy: %.4f%n", accuracy(perceptron, inputs, outputs, samples));
+
+            // --batch ... --parallel [threads]: same data and seed with the data-parallel and Hogwild trainers
+            int at = Arrays.asList(args).indexOf("--parallel");
+            if (at >= 0) {
+                int threads = at + 1 < args.length ? Integer.parseInt(args[at + 1]) : Runtime.getRuntime().availableProcessors();
+
+                batchPerceptron parallel = new batchPerceptron(features, batchSize, 2);
+                parallel.setEarlyStopping(earlyStopping);
+                start = System.nanoTime();
+                parallel.trainParallel(inputs, outputs, samples, epochs, threads);
+                double parallelSeconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("Data-parallel (%d threads): %.1f ms, speedup %.2fx, accuracy %.4f%n",
+                        threads, parallelSeconds * 1e3, seconds / parallelSeconds, accuracy(parallel, inputs, outputs, samples));
+
+                batchPerceptron hogwild = new batchPerceptron(features, batchSize, 2);
+                hogwild.setEarlyStopping(earlyStopping);
+                start = System.nanoTime();
+                hogwild.trainHogwild(inputs, outputs, samples, epochs, threads, 3);
+                double hogwildSeconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("Hogwild (%d threads): %.1f ms, speedup %.2fx, accuracy %.4f%n",
+                        threads, hogwildSeconds * 1e3, seconds / hogwildSeconds, accuracy(hogwild, inputs, outputs, samples));
+            }
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--mlp")) {
+            Train_Test.trainAndTestXor();
+            return;
+        }
         Train_Test.trainAndTest();
     }
 }
\ No newline at end of file
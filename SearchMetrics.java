@@ -0,0 +1,220 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.Timespan;
+
+/**
+ * Counters, per-phase timers and sampled progress reports for the search programs
+ * (HillClimbingColoring, MyClass). Counters are striped LongAdders, so any number
+ * of worker threads can add to them without contending on one cache line.
+ *
+ * Searches count into local variables and hand the totals over once per call, so
+ * hot loops never touch shared state. With DISABLED, the default, every method
+ * returns at once without reading the clock.
+ *
+ * Results can be written as JSON (toJson, writeJson). With recordJfr, each timed
+ * phase is also a "search.Phase" JFR event and the counters are sampled every
+ * second as "search.Counters", both visible in any running flight recording.
+ */
+public final class SearchMetrics implements AutoCloseable {
+    public enum Counter {
+        NEIGHBORS_EVALUATED, NODES_EXPANDED, HEAP_PUSHES, RESTARTS;
+
+        // name used in the JSON output
+        String key() {
+            return name().toLowerCase();
+        }
+    }
+
+    // called with the phase, how far it has got (moves, iterations, expansions) and a phase-specific value
+    public interface ProgressListener {
+        void progress(String phase, long step, long value);
+    }
+
+    // metrics that record nothing
+    public static final SearchMetrics DISABLED = new SearchMetrics(false);
+
+    private final boolean enabled;
+    private final LongAdder[] counters = new LongAdder[Counter.values().length];
+    private final Map<String, LongAdder[]> phases = new ConcurrentHashMap<>();  // phase -> {nanos, calls}
+    private volatile ProgressListener listener;
+    private volatile long intervalNanos;
+    private final AtomicLong nextProgress = new AtomicLong();
+    private volatile boolean jfr;
+    private Runnable countersHook;
+
+    public SearchMetrics() {
+        this(true);
+    }
+
+    private SearchMetrics(boolean enabled) {
+        this.enabled = enabled;
+        for (int i = 0; i < counters.length; i++) counters[i] = new LongAdder();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // report progress to listener at most once every intervalMillis
+    public SearchMetrics setProgressListener(ProgressListener listener, long intervalMillis) {
+        requireEnabled();
+        this.intervalNanos = intervalMillis * 1_000_000L;
+        this.listener = listener;
+        return this;
+    }
+
+    // emit phases and counters as JFR events until close
+    public synchronized SearchMetrics recordJfr() {
+        requireEnabled();
+        if (countersHook == null) {
+            countersHook = () -> {
+                CountersEvent event = new CountersEvent();
+                event.neighborsEvaluated = count(Counter.NEIGHBORS_EVALUATED);
+                event.nodesExpanded = count(Counter.NODES_EXPANDED);
+                event.heapPushes = count(Counter.HEAP_PUSHES);
+                event.restarts = count(Counter.RESTARTS);
+                event.commit();
+            };
+            FlightRecorder.addPeriodicEvent(CountersEvent.class, countersHook);
+        }
+        jfr = true;
+        return this;
+    }
+
+    @Override
+    public synchronized void close() {
+        jfr = false;
+        if (countersHook != null) {
+            FlightRecorder.removePeriodicEvent(countersHook);
+            countersHook = null;
+        }
+    }
+
+    private void requireEnabled() {
+        if (!enabled) throw new IllegalStateException("DISABLED metrics cannot be configured");
+    }
+
+    public void add(Counter counter, long amount) {
+        if (enabled && amount != 0) counters[counter.ordinal()].add(amount);
+    }
+
+    public long count(Counter counter) {
+        return counters[counter.ordinal()].sum();
+    }
+
+    // start of a timed phase, to pass to stop
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    // add the time since startNanos to phase
+    public void stop(String phase, long startNanos) {
+        if (!enabled) return;
+        long elapsed = System.nanoTime() - startNanos;
+        LongAdder[] timer = phases.computeIfAbsent(phase, p -> new LongAdder[]{new LongAdder(), new LongAdder()});
+        timer[0].add(elapsed);
+        timer[1].increment();
+        if (jfr) {
+            PhaseEvent event = new PhaseEvent();
+            if (event.shouldCommit()) {
+                event.phase = phase;
+                event.elapsed = elapsed;
+                event.commit();
+            }
+        }
+    }
+
+    public long phaseNanos(String phase) {
+        LongAdder[] timer = phases.get(phase);
+        return timer == null ? 0 : timer[0].sum();
+    }
+
+    public long phaseCalls(String phase) {
+        LongAdder[] timer = phases.get(phase);
+        return timer == null ? 0 : timer[1].sum();
+    }
+
+    /**
+     * Offer a progress report. Searches call this every few thousand steps; it reads
+     * the clock only when a listener is set and forwards at most one report per
+     * interval across all threads.
+     */
+    public void progress(String phase, long step, long value) {
+        ProgressListener current = listener;
+        if (current == null) return;
+        long now = System.nanoTime();
+        long due = nextProgress.get();
+        if (now - due < 0 || !nextProgress.compareAndSet(due, now + intervalNanos)) return;
+        current.progress(phase, step, value);
+    }
+
+    // {"counters": {...}, "phases": {"name": {"calls": c, "nanos": n}, ...}}, phases sorted by name
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\n  \"counters\": {");
+        for (Counter counter : Counter.values()) {
+            json.append(counter.ordinal() == 0 ? "\n" : ",\n")
+                    .append("    \"").append(counter.key()).append("\": ").append(count(counter));
+        }
+        json.append("\n  },\n  \"phases\": {");
+        String separator = "\n";
+        for (Map.Entry<String, LongAdder[]> entry : new TreeMap<>(phases).entrySet()) {
+            json.append(separator).append("    \"").append(escape(entry.getKey())).append("\": {\"calls\": ")
+                    .append(entry.getValue()[1].sum()).append(", \"nanos\": ").append(entry.getValue()[0].sum()).append('}');
+            separator = ",\n";
+        }
+        return json.append("\n  }\n}\n").toString();
+    }
+
+    public void writeJson(Path path) throws IOException {
+        Files.writeString(path, toJson());
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    @Name("search.Phase")
+    @Label("Search Phase")
+    @Category("Search")
+    @Description("One timed phase of a search")
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    @Name("search.Counters")
+    @Label("Search Counters")
+    @Category("Search")
+    @Description("Running totals of the search counters")
+    @Period("1 s")
+    static class CountersEvent extends Event {
+        @Label("Neighbors Evaluated")
+        long neighborsEvaluated;
+
+        @Label("Nodes Expanded")
+        long nodesExpanded;
+
+        @Label("Heap Pushes")
+        long heapPushes;
+
+        @Label("Restarts")
+        long restarts;
+    }
+}
@@ -0,0 +1,253 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Seeded generators for large inputs to the four programs. Every generator streams
+ * its output straight to disk in the format the matching program loads, keeping
+ * only O(1) state (O(columns) for the CSVs), so multi-GB workloads can be produced
+ * on any machine and the same seed always gives the same bytes.
+ *
+ *   coloring    edge list for HillClimbingColoring
+ *   grid        weighted edge list plus heuristic file for MyClass --graph
+ *   categorical CSV for ID3DecisionTree
+ *   separable   CSV for Perceptron --csv
+ */
+public class Workloads {
+
+    // buffered byte output that formats numbers without allocating
+    static final class Output implements AutoCloseable {
+        private final OutputStream out;
+        private final byte[] digits = new byte[20];
+
+        Output(Path path) throws IOException {
+            out = new BufferedOutputStream(Files.newOutputStream(path), 1 << 20);
+        }
+
+        Output write(String text) throws IOException {
+            for (int i = 0; i < text.length(); i++) out.write(text.charAt(i));
+            return this;
+        }
+
+        Output write(char c) throws IOException {
+            out.write(c);
+            return this;
+        }
+
+        Output write(long value) throws IOException {
+            if (value < 0) {
+                out.write('-');
+                value = -value;
+            }
+            int length = 0;
+            do {
+                digits[length++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0);
+            while (length > 0) out.write(digits[--length]);
+            return this;
+        }
+
+        // value rounded to 4 decimals, e.g. -0.1234
+        Output writeFixed(double value) throws IOException {
+            long scaled = Math.round(value * 10_000);
+            if (scaled < 0) {
+                out.write('-');
+                scaled = -scaled;
+            }
+            write(scaled / 10_000).write('.');
+            long fraction = scaled % 10_000;
+            for (long unit = 1000; unit > 0; unit /= 10) out.write((int) ('0' + fraction / unit % 10));
+            return this;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Planar-ish graph for coloring: vertices laid out row by row on a square grid,
+     * each joined to its right and lower neighbour and across one diagonal of every
+     * cell (direction chosen at random), then each edge dropped with probability drop.
+     * Triangulated grids are planar, so the result is always 4-colorable, while the
+     * dropped edges keep the degrees from being uniform.
+     * @return number of edges written
+     */
+    static long coloring(Path path, int vertices, double drop, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        int side = (int) Math.ceil(Math.sqrt(vertices));
+        long edges = 0;
+        try (Output out = new Output(path)) {
+            out.write("# planar triangulated grid: ").write(vertices).write(" vertices, drop ")
+                    .write(String.valueOf(drop)).write(", seed ").write(seed).write('\n');
+            for (int v = 0; v < vertices; v++) {
+                int c = v % side;
+                boolean right = c + 1 < side && v + 1 < vertices;
+                boolean down = v + side < vertices;
+                if (right && random.nextDouble() >= drop) edges += edge(out, v, v + 1);
+                if (down && random.nextDouble() >= drop) edges += edge(out, v, v + side);
+                if (right && v + side + 1 < vertices && random.nextDouble() >= drop) {
+                    edges += random.nextBoolean() ? edge(out, v, v + side + 1) : edge(out, v + 1, v + side);
+                }
+            }
+        }
+        return edges;
+    }
+
+    private static int edge(Output out, int u, int v) throws IOException {
+        out.write(u).write(' ').write(v).write('\n');
+        return 1;
+    }
+
+    /**
+     * Road-like grid for A*: rows x cols nodes, 4-connected, every edge written in both
+     * directions as "u v w" with the same cost. Every 16th row and column is a highway
+     * of cost 1; the other edges cost 2 .. maxCost at random. Writes the heuristic for
+     * goal next to it: Manhattan distance in grid steps, consistent because no edge
+     * costs less than 1.
+     * @return number of directed edges written
+     */
+    static long grid(Path graphPath, Path heuristicPath, int rows, int cols, int maxCost, int goal, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        long edges = 0;
+        try (Output out = new Output(graphPath)) {
+            out.write("# road grid: ").write(rows).write(" x ").write(cols).write(", seed ").write(seed).write('\n');
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    int v = r * cols + c;
+                    if (c + 1 < cols) {
+                        int w = r % 16 == 0 ? 1 : 2 + random.nextInt(Math.max(1, maxCost - 1));
+                        edges += weightedEdge(out, v, v + 1, w);
+                    }
+                    if (r + 1 < rows) {
+                        int w = c % 16 == 0 ? 1 : 2 + random.nextInt(Math.max(1, maxCost - 1));
+                        edges += weightedEdge(out, v, v + cols, w);
+                    }
+                }
+            }
+        }
+        try (Output out = new Output(heuristicPath)) {
+            out.write("# Manhattan distance to node ").write(goal).write('\n');
+            int goalRow = goal / cols;
+            int goalCol = goal % cols;
+            for (int v = 0; v < rows * cols; v++) {
+                out.write(Math.abs(v / cols - goalRow) + Math.abs(v % cols - goalCol)).write('\n');
+            }
+        }
+        return edges;
+    }
+
+    private static int weightedEdge(Output out, int u, int v, int w) throws IOException {
+        out.write(u).write(' ').write(v).write(' ').write(w).write('\n');
+        out.write(v).write(' ').write(u).write(' ').write(w).write('\n');
+        return 2;
+    }
+
+    /**
+     * Categorical CSV for ID3: columns a0 .. a{attributes-1} with values v0 .. v{arity-1}
+     * and a yes/no label that is a fixed function of a0, a1 and a2, flipped on noise
+     * percent of the rows. Attributes past the third carry no information.
+     */
+    static void categorical(Path path, int rows, int attributes, int arity, int noise, long seed) throws IOException {
+        if (attributes < 3) throw new IllegalArgumentException("Need at least 3 attributes, got " + attributes);
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] codes = new int[attributes];
+        try (Output out = new Output(path)) {
+            for (int a = 0; a < attributes; a++) out.write('a').write(a).write(',');
+            out.write("label\n");
+            for (int r = 0; r < rows; r++) {
+                for (int a = 0; a < attributes; a++) {
+                    codes[a] = random.nextInt(arity);
+                    out.write('v').write(codes[a]).write(',');
+                }
+                boolean positive = (codes[0] + codes[1] * codes[2]) % 3 == 0;
+                if (random.nextInt(100) < noise) positive = !positive;
+                out.write(positive ? "yes\n" : "no\n");
+            }
+        }
+    }
+
+    /**
+     * Numeric CSV for the perceptron: features columns x0 .. with values in [-1, 1]
+     * and a 0/1 label y from a random hyperplane through the origin. With noise 0 the
+     * data is linearly separable; otherwise noise percent of the labels are flipped.
+     */
+    static void separable(Path path, int samples, int features, int noise, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] plane = new double[features];
+        for (int j = 0; j < features; j++) plane[j] = random.nextDouble() * 2 - 1;
+        double[] row = new double[features];
+        try (Output out = new Output(path)) {
+            for (int j = 0; j < features; j++) out.write('x').write(j).write(',');
+            out.write("y\n");
+            for (int i = 0; i < samples; i++) {
+                double side = 0.0;
+                for (int j = 0; j < features; j++) {
+                    // round first so the label agrees with the written values
+                    row[j] = Math.round((random.nextDouble() * 2 - 1) * 10_000) / 10_000.0;
+                    side += plane[j] * row[j];
+                    out.writeFixed(row[j]).write(',');
+                }
+                boolean positive = side > 0;
+                if (random.nextInt(100) < noise) positive = !positive;
+                out.write(positive ? "1\n" : "0\n");
+            }
+        }
+    }
+
+    // value of --name, or the default when the option is absent
+    static String option(String[] args, String name, String defaultValue) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals(name)) return args[i + 1];
+        }
+        return defaultValue;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java Workloads <kind> ... [--seed n]");
+            System.out.println("  coloring <vertices> <edges.txt> [--drop p]");
+            System.out.println("  grid <rows> <cols> <edges.txt> <heuristic.txt> [--max-cost c] [--goal v]");
+            System.out.println("  categorical <rows> <attributes> <arity> <noise%> <data.csv>");
+            System.out.println("  separable <samples> <features> <noise%> <data.csv>");
+            return;
+        }
+        long seed = Long.parseLong(option(args, "--seed", "42"));
+        long begin = System.nanoTime();
+        Path out;
+        switch (args[0]) {
+            case "coloring": {
+                out = Path.of(args[2]);
+                long edges = coloring(out, Integer.parseInt(args[1]), Double.parseDouble(option(args, "--drop", "0.1")), seed);
+                System.out.println("Wrote " + edges + " edges");
+                break;
+            }
+            case "grid": {
+                int rows = Integer.parseInt(args[1]);
+                int cols = Integer.parseInt(args[2]);
+                out = Path.of(args[3]);
+                int goal = Integer.parseInt(option(args, "--goal", String.valueOf(rows * cols - 1)));
+                long edges = grid(out, Path.of(args[4]), rows, cols, Integer.parseInt(option(args, "--max-cost", "9")), goal, seed);
+                System.out.println("Wrote " + edges + " directed edges, heuristic towards node " + goal);
+                break;
+            }
+            case "categorical":
+                out = Path.of(args[5]);
+                categorical(out, Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                        Integer.parseInt(args[4]), seed);
+                break;
+            case "separable":
+                out = Path.of(args[4]);
+                separable(out, Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), seed);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown workload " + args[0]);
+        }
+        System.out.printf("%s: %d bytes in %.1f ms%n", out, Files.size(out), (System.nanoTime() - begin) / 1e6);
+    }
+}
@@ -0,0 +1,78 @@
+package bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A* from MyClass on a side x side 4-connected grid with seeded edge costs in
+ * [1, 9], from one corner to the opposite one. The heuristic is the Manhattan
+ * distance to the goal, which is consistent because every edge costs at least 1.
+ * This runs Search.run, the search behind aStar, without aStar's printing; the
+ * Search is reused across queries as PathService does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AStarBenchmark {
+    @Param({"100", "300", "1000"})
+    int side;
+
+    Object graph;
+    Object search;
+    int[] heuristic;
+    int[] goals;
+    int[] zero;
+
+    @Setup
+    public void setUp() throws Throwable {
+        SplittableRandom random = new SplittableRandom(42);
+        int n = side * side;
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[4 * n];
+        int[] weights = new int[4 * n];
+        int e = 0;
+        for (int v = 0; v < n; v++) {
+            int r = v / side;
+            int c = v % side;
+            if (r > 0) targets[e++] = v - side;
+            if (c > 0) targets[e++] = v - 1;
+            if (c + 1 < side) targets[e++] = v + 1;
+            if (r + 1 < side) targets[e++] = v + side;
+            offsets[v + 1] = e;
+        }
+        for (int i = 0; i < e; i++) weights[i] = 1 + random.nextInt(9);
+        graph = (Object) Solvers.NEW_PATH_GRAPH.invokeExact(offsets, targets, weights);
+        search = (Object) Solvers.NEW_SEARCH.invokeExact(n);
+
+        int goal = n - 1;
+        heuristic = new int[n];
+        for (int v = 0; v < n; v++) heuristic[v] = (side - 1 - v / side) + (side - 1 - v % side);
+        goals = new int[]{goal};
+        zero = new int[n];
+    }
+
+    @Benchmark
+    public int aStar() throws Throwable {
+        return (int) Solvers.SEARCH_RUN.invokeExact(search, graph, heuristic, 0, goals);
+    }
+
+    // same query with h = 0, as a reference for how much the heuristic prunes
+    @Benchmark
+    public int dijkstra() throws Throwable {
+        return (int) Solvers.SEARCH_RUN.invokeExact(search, graph, zero, 0, goals);
+    }
+}
@@ -0,0 +1,33 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar: runs the benchmarks with the GC profiler attached,
+ * so every result comes with gc.alloc.rate and gc.alloc.rate.norm, and writes them
+ * to jmh-result.json as the baseline to compare later runs against. Any JMH command
+ * line option still applies, e.g. a benchmark regex or -p vertices=1000.
+ */
+public final class Baseline {
+    private Baseline() {
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(commandLine.getResultFormat().orElse(ResultFormatType.JSON))
+                .result(commandLine.getResult().orElse("jmh-result.json"));
+        if (commandLine.getIncludes().isEmpty()) builder.include("bench\\.");
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+}
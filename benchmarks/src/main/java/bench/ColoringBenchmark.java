@@ -0,0 +1,79 @@
+package bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * computeHeuristic and hillClimb from HillClimbingColoring on a triangulated grid:
+ * a planar graph of about vertices nodes where each cell gets one diagonal in a
+ * seeded random direction, colored from a seeded random start.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColoringBenchmark {
+    @Param({"1000", "10000", "100000"})
+    int vertices;
+
+    @Param({"4"})
+    int k;
+
+    Object graph;
+    int[] colors;
+
+    @Setup
+    public void setUp() throws Throwable {
+        SplittableRandom random = new SplittableRandom(42);
+        int side = (int) Math.ceil(Math.sqrt(vertices));
+        int n = side * side;
+        int[] from = new int[3 * n];
+        int[] to = new int[3 * n];
+        int edges = 0;
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                int v = r * side + c;
+                if (c + 1 < side) {
+                    from[edges] = v;
+                    to[edges++] = v + 1;
+                }
+                if (r + 1 < side) {
+                    from[edges] = v;
+                    to[edges++] = v + side;
+                }
+                if (r + 1 < side && c + 1 < side) {
+                    boolean down = random.nextBoolean();
+                    from[edges] = down ? v : v + 1;
+                    to[edges++] = down ? v + side + 1 : v + side;
+                }
+            }
+        }
+        graph = (Object) Solvers.COLORING_FROM_EDGES.invokeExact(n, from, to, edges);
+        colors = new int[n];
+        for (int v = 0; v < n; v++) colors[v] = random.nextInt(k);
+    }
+
+    @Benchmark
+    public int computeHeuristic() throws Throwable {
+        return (int) Solvers.COMPUTE_HEURISTIC.invokeExact(graph, colors);
+    }
+
+    // hillClimb copies the start state, so every invocation climbs from the same coloring
+    @Benchmark
+    public int[] hillClimb() throws Throwable {
+        return (int[]) Solvers.HILL_CLIMB.invokeExact(graph, colors, k);
+    }
+}
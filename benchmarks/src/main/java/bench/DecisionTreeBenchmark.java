@@ -0,0 +1,83 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * buildTree and chooseBestAttribute from ID3DecisionTree on a seeded categorical
+ * dataset: attributes columns of arity values each, with a label that is a function
+ * of the first three attributes and flipped on noise percent of the rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecisionTreeBenchmark {
+    @Param({"1000", "10000", "100000"})
+    int rows;
+
+    @Param({"8"})
+    int attributes;
+
+    @Param({"4"})
+    int arity;
+
+    @Param({"10"})
+    int noise;
+
+    Object data;
+    int[] rowIds;
+    List<Integer> attrIndices;
+
+    @Setup
+    public void setUp() throws Throwable {
+        SplittableRandom random = new SplittableRandom(42);
+        String[] header = new String[attributes + 1];
+        for (int a = 0; a < attributes; a++) header[a] = "a" + a;
+        header[attributes] = "label";
+        data = (Object) Solvers.NEW_DATASET.invokeExact(header, attributes);
+
+        String[] values = new String[attributes + 1];
+        int[] codes = new int[attributes];
+        for (int r = 0; r < rows; r++) {
+            for (int a = 0; a < attributes; a++) {
+                codes[a] = random.nextInt(arity);
+                values[a] = "v" + codes[a];
+            }
+            boolean positive = (codes[0] + codes[1] * codes[2]) % 3 == 0;
+            if (random.nextInt(100) < noise) positive = !positive;
+            values[attributes] = positive ? "yes" : "no";
+            Solvers.ADD_ROW.invokeExact(data, values, attributes);
+        }
+
+        rowIds = (int[]) Solvers.ALL_ROWS.invokeExact(data);
+        attrIndices = new ArrayList<>();
+        for (int a = 0; a < attributes; a++) attrIndices.add(a);
+    }
+
+    @Benchmark
+    public Object buildTree() throws Throwable {
+        return (Object) Solvers.BUILD_TREE.invokeExact(data);
+    }
+
+    // the root split, which scans every row once
+    @Benchmark
+    public int chooseBestAttribute() throws Throwable {
+        return (int) Solvers.CHOOSE_BEST_ATTRIBUTE.invokeExact(data, rowIds, 0, rows, attrIndices);
+    }
+}
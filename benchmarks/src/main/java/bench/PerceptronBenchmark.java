@@ -0,0 +1,83 @@
+package bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One training epoch and one prediction pass of Perceptron's batchPerceptron and
+ * multiLayerPerceptron over seeded, linearly separable data. The models keep
+ * training across invocations, which does not change the work done per epoch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PerceptronBenchmark {
+    @Param({"1000", "10000", "100000"})
+    int samples;
+
+    @Param({"32"})
+    int features;
+
+    @Param({"64"})
+    int batchSize;
+
+    double[] inputs;
+    double[] outputs;
+    double[] predictions;
+    Object perceptron;
+    Object network;
+
+    @Setup
+    public void setUp() throws Throwable {
+        SplittableRandom random = new SplittableRandom(42);
+        double[] plane = new double[features];
+        for (int j = 0; j < features; j++) plane[j] = random.nextDouble() * 2 - 1;
+        inputs = new double[samples * features];
+        outputs = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            double side = 0.0;
+            for (int j = 0; j < features; j++) {
+                inputs[i * features + j] = random.nextDouble() * 2 - 1;
+                side += plane[j] * inputs[i * features + j];
+            }
+            outputs[i] = side > 0 ? 1 : 0;
+        }
+        predictions = new double[samples];
+
+        // no listener, so nothing is printed per epoch
+        perceptron = (Object) Solvers.NEW_BATCH_PERCEPTRON.invokeExact(features, batchSize, 7L);
+        Solvers.BATCH_SET_LISTENER.invokeExact(perceptron, (Object) null);
+        network = (Object) Solvers.NEW_MLP.invokeExact(new int[]{features, 16, 1}, 7L);
+        Solvers.MLP_SET_LISTENER.invokeExact(network, (Object) null);
+    }
+
+    @Benchmark
+    public double train() throws Throwable {
+        return (double) Solvers.BATCH_TRAIN.invokeExact(perceptron, inputs, outputs, samples, 1);
+    }
+
+    @Benchmark
+    public double[] predict() throws Throwable {
+        Solvers.BATCH_PREDICT.invokeExact(perceptron, inputs, samples, predictions);
+        return predictions;
+    }
+
+    @Benchmark
+    public double trainMultiLayer() throws Throwable {
+        return (double) Solvers.MLP_TRAIN.invokeExact(network, inputs, outputs, samples, 1);
+    }
+}
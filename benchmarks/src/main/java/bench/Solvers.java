@@ -0,0 +1,110 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Method handles onto the solver code. The four programs live in the unnamed package,
+ * which named-package code such as JMH benchmarks cannot reference, so each entry
+ * point is looked up reflectively once. Solver types (graphs, datasets, searches) are
+ * erased to Object while primitives and arrays keep their types, so calls through
+ * invokeExact neither box nor allocate, and as static finals the JIT inlines them
+ * like direct calls.
+ */
+final class Solvers {
+    // HillClimbingColoring
+    static final MethodHandle COLORING_FROM_EDGES;  // (int vertexCount, int[] from, int[] to, int edgeCount) -> Graph
+    static final MethodHandle COMPUTE_HEURISTIC;  // (Graph, int[] colors) -> int
+    static final MethodHandle HILL_CLIMB;  // (Graph, int[] initialState, int k) -> int[]
+
+    // ID3DecisionTree
+    static final MethodHandle NEW_DATASET;  // (String[] header, int labelIndex) -> Dataset
+    static final MethodHandle ADD_ROW;  // (Dataset, String[] values, int labelIndex) -> void
+    static final MethodHandle ALL_ROWS;  // (Dataset) -> int[]
+    static final MethodHandle BUILD_TREE;  // (Dataset) -> Node
+    static final MethodHandle CHOOSE_BEST_ATTRIBUTE;  // (Dataset, int[] rows, int from, int to, List attrs) -> int
+
+    // MyClass
+    static final MethodHandle NEW_PATH_GRAPH;  // (int[] offsets, int[] targets, int[] weights) -> Graph
+    static final MethodHandle NEW_SEARCH;  // (int nodeCount) -> Search
+    static final MethodHandle SEARCH_RUN;  // (Search, Graph, int[] heuristic, int start, int[] goals) -> int
+
+    // Perceptron
+    static final MethodHandle NEW_BATCH_PERCEPTRON;  // (int inputSize, int batchSize, long seed) -> batchPerceptron
+    static final MethodHandle BATCH_SET_LISTENER;  // (batchPerceptron, EpochListener) -> void
+    static final MethodHandle BATCH_TRAIN;  // (batchPerceptron, double[] inputs, double[] outputs, int samples, int epochs) -> double
+    static final MethodHandle BATCH_PREDICT;  // (batchPerceptron, double[] inputs, int samples, double[] out) -> void
+    static final MethodHandle NEW_MLP;  // (int[] sizes, long seed) -> multiLayerPerceptron
+    static final MethodHandle MLP_SET_LISTENER;  // (multiLayerPerceptron, EpochListener) -> void
+    static final MethodHandle MLP_TRAIN;  // (multiLayerPerceptron, double[] inputs, double[] outputs, int samples, int epochs) -> double
+
+    static {
+        try {
+            Class<?> coloringGraph = Class.forName("HillClimbingColoring$Graph");
+            COLORING_FROM_EDGES = method(coloringGraph, "fromEdges", int.class, int[].class, int[].class, int.class);
+            COMPUTE_HEURISTIC = method(Class.forName("HillClimbingColoring"), "computeHeuristic", coloringGraph, int[].class);
+            HILL_CLIMB = method(Class.forName("HillClimbingColoring"), "hillClimb", coloringGraph, int[].class, int.class);
+
+            Class<?> id3 = Class.forName("ID3DecisionTree");
+            Class<?> dataset = Class.forName("ID3DecisionTree$Dataset");
+            NEW_DATASET = constructor(dataset, String[].class, int.class);
+            ADD_ROW = method(dataset, "addRow", String[].class, int.class);
+            ALL_ROWS = method(dataset, "allRows");
+            BUILD_TREE = method(id3, "buildTree", dataset);
+            CHOOSE_BEST_ATTRIBUTE = method(id3, "chooseBestAttribute", dataset, int[].class, int.class, int.class, List.class);
+
+            Class<?> pathGraph = Class.forName("MyClass$Graph");
+            Class<?> search = Class.forName("MyClass$Search");
+            NEW_PATH_GRAPH = constructor(pathGraph, int[].class, int[].class, int[].class);
+            NEW_SEARCH = constructor(search, int.class);
+            SEARCH_RUN = method(search, "run", pathGraph, int[].class, int.class, int[].class);
+
+            Class<?> listener = Class.forName("Perceptron$EpochListener");
+            Class<?> batch = Class.forName("Perceptron$batchPerceptron");
+            Class<?> mlp = Class.forName("Perceptron$multiLayerPerceptron");
+            NEW_BATCH_PERCEPTRON = constructor(batch, int.class, int.class, long.class);
+            BATCH_SET_LISTENER = method(batch, "setEpochListener", listener);
+            BATCH_TRAIN = method(batch, "train", double[].class, double[].class, int.class, int.class);
+            BATCH_PREDICT = method(batch, "predict", double[].class, int.class, double[].class);
+            NEW_MLP = constructor(mlp, int[].class, long.class);
+            MLP_SET_LISTENER = method(mlp, "setEpochListener", listener);
+            MLP_TRAIN = method(mlp, "train", double[].class, double[].class, int.class, int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Solvers() {
+    }
+
+    private static MethodHandle method(Class<?> owner, String name, Class<?>... parameters) throws ReflectiveOperationException {
+        Method method = owner.getDeclaredMethod(name, parameters);
+        method.setAccessible(true);
+        MethodHandle handle = MethodHandles.lookup().unreflect(method);
+        return handle.asType(erase(handle.type()));
+    }
+
+    private static MethodHandle constructor(Class<?> owner, Class<?>... parameters) throws ReflectiveOperationException {
+        Constructor<?> constructor = owner.getDeclaredConstructor(parameters);
+        constructor.setAccessible(true);
+        MethodHandle handle = MethodHandles.lookup().unreflectConstructor(constructor);
+        return handle.asType(erase(handle.type()));
+    }
+
+    // replace every solver class in the signature with Object
+    private static MethodType erase(MethodType type) {
+        MethodType erased = type.changeReturnType(erase(type.returnType()));
+        for (int i = 0; i < type.parameterCount(); i++) {
+            erased = erased.changeParameterType(i, erase(type.parameterType(i)));
+        }
+        return erased;
+    }
+
+    private static Class<?> erase(Class<?> type) {
+        return type.isPrimitive() || type.isArray() || type.getName().startsWith("java.") ? type : Object.class;
+    }
+}
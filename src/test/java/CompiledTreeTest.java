@@ -0,0 +1,120 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// save/load round trip of ID3DecisionTree.CompiledTree and rejection of damaged model files
+class CompiledTreeTest {
+    @TempDir
+    Path dir;
+
+    ID3DecisionTree.Dataset data;
+    ID3DecisionTree.CompiledTree model;
+    Path file;
+
+    @BeforeEach
+    void trainAndSave() throws IOException {
+        data = new ID3DecisionTree.Dataset(new String[]{"outlook", "temperature", "humidity", "windy", "play"}, 4);
+        String[][] rows = {
+                {"sunny", "hot", "high", "false", "no"},
+                {"sunny", "hot", "high", "true", "no"},
+                {"overcast", "hot", "high", "false", "yes"},
+                {"rainy", "mild", "high", "false", "yes"},
+                {"rainy", "cool", "normal", "false", "yes"},
+                {"rainy", "cool", "normal", "true", "no"},
+                {"overcast", "cool", "normal", "true", "yes"},
+                {"sunny", "mild", "high", "false", "no"},
+                {"sunny", "cool", "normal", "false", "yes"},
+                {"rainy", "mild", "normal", "false", "yes"},
+                {"sunny", "mild", "normal", "true", "yes"},
+                {"overcast", "mild", "high", "true", "yes"},
+                {"overcast", "hot", "normal", "false", "yes"},
+                {"rainy", "mild", "high", "true", "no"},
+        };
+        for (String[] row : rows) data.addRow(row, 4);
+        model = ID3DecisionTree.compile(ID3DecisionTree.buildTree(data), data);
+        file = dir.resolve("model.id3");
+        model.save(file);
+    }
+
+    @Test
+    void roundTripKeepsTheModel() throws IOException {
+        ID3DecisionTree.CompiledTree reloaded = ID3DecisionTree.CompiledTree.load(file);
+        assertTrue(model.sameModel(reloaded));
+        assertArrayEquals(model.predict(data), reloaded.predict(data));
+        assertEquals("no", reloaded.predict(new String[]{"sunny", "cool", "high", "true"}));
+        assertEquals("yes", reloaded.predict(new String[]{"overcast", "hot", "high", "true"}));
+    }
+
+    @Test
+    void rejectsTruncatedFile() throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        for (int length : new int[]{0, 4, 12, bytes.length / 2, bytes.length - 1}) {
+            Files.write(file, Arrays.copyOf(bytes, length));
+            assertThrows(IOException.class, () -> ID3DecisionTree.CompiledTree.load(file), "length " + length);
+        }
+    }
+
+    @Test
+    void rejectsWrongMagicAndVersion() throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(4, ID3DecisionTree.CompiledTree.VERSION + 1);
+        Files.write(file, bytes);
+        IOException version = assertThrows(IOException.class, () -> ID3DecisionTree.CompiledTree.load(file));
+        assertTrue(version.getMessage().contains("Unsupported model version"), version.getMessage());
+
+        ByteBuffer.wrap(bytes).putInt(0, 0xCAFEBABE);
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> ID3DecisionTree.CompiledTree.load(file));
+    }
+
+    @Test
+    void rejectsChildPointingBackUpTheTree() throws IOException {
+        // the children array sits just before the trailing label array; point the first child at the root
+        assertTrue(model.children.length > 0);
+        corruptInt(model.nodeCount() + model.children.length, 0);
+        assertCorrupt();
+    }
+
+    @Test
+    void rejectsChildPastTheLastNode() throws IOException {
+        corruptInt(model.nodeCount() + model.children.length, model.nodeCount());
+        assertCorrupt();
+    }
+
+    @Test
+    void rejectsLabelOutsideTheDictionary() throws IOException {
+        corruptInt(1, model.labelDictionary.size());
+        assertCorrupt();
+    }
+
+    @Test
+    void rejectsFeatureOutsideTheAttributes() throws IOException {
+        // feature array: after the node count, which follows the label dictionary
+        int nodes = model.nodeCount();
+        int featureEnd = nodes + (nodes + 1) + 1 + model.children.length + nodes;  // ints from the end of the file
+        corruptInt(featureEnd, model.attributeNames.length);
+        assertCorrupt();
+    }
+
+    // overwrite the int that starts intsFromEnd ints before the end of the saved file
+    private void corruptInt(int intsFromEnd, int value) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(bytes.length - 4 * intsFromEnd, value);
+        Files.write(file, bytes);
+    }
+
+    private void assertCorrupt() {
+        IOException e = assertThrows(IOException.class, () -> ID3DecisionTree.CompiledTree.load(file));
+        assertTrue(e.getMessage().startsWith("Corrupt model file"), e.getMessage());
+    }
+}
@@ -0,0 +1,117 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// MyClass.Landmarks save/load, and ALT and bidirectional searches agreeing with Dijkstra
+class LandmarksTest {
+    static final int NODES = 400;
+
+    @TempDir
+    Path dir;
+
+    MyClass.Graph graph;
+    MyClass.Landmarks selected;
+    MyClass.Landmarks loaded;
+
+    @BeforeEach
+    void selectAndReload() throws IOException {
+        graph = randomGraph(NODES, 3, 42);
+        selected = MyClass.Landmarks.select(graph, 6);
+        Path file = dir.resolve("landmarks.bin");
+        selected.save(file);
+        loaded = MyClass.Landmarks.load(file);
+    }
+
+    // directed graph with degree random out-edges per node and costs 1 .. 20, some nodes unreachable from others
+    static MyClass.Graph randomGraph(int n, int degree, long seed) {
+        Random random = new Random(seed);
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[n * degree];
+        int[] weights = new int[n * degree];
+        for (int u = 0; u < n; u++) {
+            for (int k = 0; k < degree; k++) {
+                targets[u * degree + k] = random.nextInt(n);
+                weights[u * degree + k] = 1 + random.nextInt(20);
+            }
+            offsets[u + 1] = (u + 1) * degree;
+        }
+        return new MyClass.Graph(offsets, targets, weights);
+    }
+
+    @Test
+    void roundTripKeepsTheTables() {
+        assertArrayEquals(selected.nodes, loaded.nodes);
+        assertEquals(selected.nodeCount, loaded.nodeCount);
+        for (int v = 0; v < NODES; v++) {
+            for (int t = 0; t < NODES; t++) {
+                assertEquals(selected.lowerBound(v, t), loaded.lowerBound(v, t), "bound from " + v + " to " + t);
+            }
+        }
+    }
+
+    @Test
+    void boundsNeverOverestimate() {
+        for (int t = 0; t < NODES; t += 7) {
+            int[] toT = MyClass.distances(graph.reverse(), t);
+            for (int v = 0; v < NODES; v++) {
+                if (toT[v] != Integer.MAX_VALUE) {
+                    assertTrue(loaded.lowerBound(v, t) <= toT[v], "bound from " + v + " to " + t);
+                }
+            }
+        }
+    }
+
+    @Test
+    void searchesMatchDijkstra() {
+        Random random = new Random(7);
+        MyClass.Search dijkstra = new MyClass.Search(NODES);
+        MyClass.BidirectionalSearch bidirectional = new MyClass.BidirectionalSearch(graph, null);
+        MyClass.BidirectionalSearch bidirectionalAlt = new MyClass.BidirectionalSearch(graph, loaded);
+        try (MyClass.PathService alt = new MyClass.PathService(graph, loaded)) {
+            for (int q = 0; q < 2000; q++) {
+                int start = random.nextInt(NODES);
+                int goal = random.nextInt(NODES);
+                int expected = dijkstra.run(graph, (int[]) null, start, goal);
+                String query = start + " -> " + goal;
+                assertEquals(expected, alt.query(start, goal).cost, "ALT " + query);
+                assertEquals(expected, bidirectional.run(start, goal), "bidirectional " + query);
+                assertEquals(expected, bidirectionalAlt.run(start, goal), "bidirectional ALT " + query);
+            }
+        }
+    }
+
+    @Test
+    void multiGoalAltMatchesDijkstra() {
+        Random random = new Random(11);
+        MyClass.Search dijkstra = new MyClass.Search(NODES);
+        try (MyClass.PathService alt = new MyClass.PathService(graph, loaded)) {
+            for (int q = 0; q < 500; q++) {
+                int start = random.nextInt(NODES);
+                int[] goals = random.ints(3, 0, NODES).toArray();
+                assertEquals(dijkstra.run(graph, (int[]) null, start, goals), alt.query(start, goals).cost,
+                        start + " -> " + Arrays.toString(goals));
+            }
+        }
+    }
+
+    @Test
+    void rejectsDamagedFiles() throws IOException {
+        Path file = dir.resolve("landmarks.bin");
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+        assertThrows(IOException.class, () -> MyClass.Landmarks.load(file));
+        bytes[0] ^= 1;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> MyClass.Landmarks.load(file));
+    }
+}